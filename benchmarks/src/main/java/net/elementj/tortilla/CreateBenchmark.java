@@ -0,0 +1,94 @@
+package net.elementj.tortilla;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks TortillaBase.create for each family of types, with beans populated to a depth of 0 and 1.  The random
+ * values are seeded by the tortilla.seed system property of the forked JVMs, so every run creates the same values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(value=2, jvmArgsAppend="-D"+TortillaBase.SEED_PROPERTY+"=20161205")
+public class CreateBenchmark {
+	@Param({"0","1"})
+	public int depth;
+	private Base base;
+
+	@Setup
+	public void setUp() {
+		base=new Base(depth);
+	}
+	@Benchmark
+	public int primitive() {
+		return base.create(int.class);
+	}
+	@Benchmark
+	public String string() {
+		return base.create(String.class);
+	}
+	@Benchmark
+	public TimeUnit enumConstant() {
+		return base.create(TimeUnit.class);
+	}
+	@Benchmark
+	public BigDecimal bigDecimal() {
+		return base.create(BigDecimal.class);
+	}
+	@Benchmark
+	public UUID uuid() {
+		return base.create(UUID.class);
+	}
+	@Benchmark
+	public int[] primitiveArray() {
+		return base.createIntArray();
+	}
+	@Benchmark
+	public List<?> collection() {
+		return base.create(List.class);
+	}
+	@Benchmark
+	public Map<?,?> map() {
+		return base.create(Map.class);
+	}
+	@Benchmark
+	public Runnable mock() {
+		return base.create(Runnable.class);
+	}
+	@Benchmark
+	public SampleBean bean() {
+		return base.create(SampleBean.class);
+	}
+	/**
+	 * A TortillaBase populating beans to a fixed depth.
+	 */
+	static class Base extends TortillaBase {
+		private final int depth;
+
+		Base(int depth) {
+			this.depth=depth;
+		}
+		@Override
+		protected int getDepth() {
+			return depth;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package net.elementj.tortilla;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks accepting class names against large sets of include and exclude specifications, as
+ * TortillaMojo.accepted does for every class it finds, and compiling the specifications.  A third of the
+ * specifications are class names, a third package prefixes and a third other wildcards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(2)
+public class FilterBenchmark {
+	private static final int NAMES=256;
+	@Param({"10","100","1000"})
+	public int patterns;
+	private String[] excludeSpecs, includeSpecs;
+	private WildcardMatcher excludes, includes;
+	private final String[] names=new String[NAMES];
+	private int next;
+
+	@Setup
+	public void setUp() {
+		excludeSpecs=new String[patterns];
+		includeSpecs=new String[patterns];
+		for (int i=0;i<patterns;i++) {
+			switch (i%3) {
+			case 0:
+				excludeSpecs[i]="com.example.p"+i+".Bean"+i;
+				includeSpecs[i]="com.example.q"+i+".Bean"+i;
+				break;
+			case 1:
+				excludeSpecs[i]="com.example.p"+i+".internal.*";
+				includeSpecs[i]="com.example.p"+i+".*";
+				break;
+			default:
+				excludeSpecs[i]="com.example.*.Generated"+i+"?";
+				includeSpecs[i]="com.example.q*.Dto"+i;
+			}
+		}
+		excludes=new WildcardMatcher(excludeSpecs);
+		includes=new WildcardMatcher(includeSpecs);
+		for (int i=0;i<NAMES;i++) {
+			int p=i*7%Math.max(patterns,1);
+			switch (i%4) {
+			case 0: names[i]="com.example.p"+p+".Bean"+p; break;
+			case 1: names[i]="com.example.p"+p+".internal.Impl"+i; break;
+			case 2: names[i]="com.example.q"+p+".Dto"+p; break;
+			default: names[i]="org.other.Type"+i;
+			}
+		}
+	}
+	@Benchmark
+	public boolean accepted() {
+		String name=names[next++&(NAMES-1)];
+		return excludes.match(name)==null&&includes.match(name)!=null;
+	}
+	@Benchmark
+	public WildcardMatcher compile() {
+		return new WildcardMatcher(excludeSpecs);
+	}
+}
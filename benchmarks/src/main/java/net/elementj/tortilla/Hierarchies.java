@@ -0,0 +1,43 @@
+package net.elementj.tortilla;
+
+/**
+ * Generic hierarchies for the reflection benchmarks: a deep chain of subclasses passing a type variable down to the
+ * class that binds it, a class binding the type variables of many interfaces, and a mix of both in the shape of the
+ * fixtures of PathToDeclarationTest.
+ */
+public final class Hierarchies {
+	private Hierarchies() { }
+
+	public static class Deep0<T> { public T getValue() { return null; } }
+	public static class Deep1<T> extends Deep0<T> { }
+	public static class Deep2<T> extends Deep1<T> { }
+	public static class Deep3<T> extends Deep2<T> { }
+	public static class Deep4<T> extends Deep3<T> { }
+	public static class Deep5<T> extends Deep4<T> { }
+	public static class Deep6<T> extends Deep5<T> { }
+	public static class Deep7<T> extends Deep6<T> { }
+	public static class DeepLeaf extends Deep7<Integer> { }
+
+	public interface Wide0<T> { T getValue0(); }
+	public interface Wide1<T> { T getValue1(); }
+	public interface Wide2<T> { T getValue2(); }
+	public interface Wide3<T> { T getValue3(); }
+	public interface Wide4<T> { T getValue4(); }
+	public interface Wide5<T> { T getValue5(); }
+	public interface Wide6<T> { T getValue6(); }
+	public interface Wide7<T> { T getValue7(); }
+	public abstract static class WideLeaf implements Wide0<String>, Wide1<Integer>, Wide2<Long>, Wide3<Double>,
+			Wide4<Short>, Wide5<Byte>, Wide6<Float>, Wide7<Character> { }
+
+	public interface Gen1 { }
+	public interface Gen2 extends Gen1 { }
+	public interface Gen3 extends Gen2 { }
+	public interface GenC<T> { }
+	public interface If1 { }
+	public interface If2 extends If1 { }
+	public static class Sub1<A extends Gen1> { public A getA() { return null; } }
+	public static class Sub2<B extends Gen1> extends Sub1<Gen3> implements If2, GenC<B> {
+		public B getB() { return null; }
+	}
+	public static class Sub3 extends Sub2<Gen3> { }
+}
@@ -0,0 +1,194 @@
+package net.elementj.tortilla;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Field;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Runs TortillaMojo.execute against synthetic code bases of increasing size, written by {@link SyntheticCodebase},
+ * and records the throughput, heap and number of files written of each run, so that scaling regressions in
+ * scanning, loading or output show up before a release.  The heap is reported as the sum of the peaks of the heap
+ * memory pools, an upper bound of the peak heap usage since the pools do not all peak at the same time.  Each size is run in four configurations: the defaults,
+ * aggregated suites, a list of 200 excludes, and an incremental run over the output of the first.  Run it with
+ * <pre>
+ * java -Xmx4g -cp benchmarks/target/benchmarks.jar net.elementj.tortilla.MojoScalingHarness [sizes] [work directory]
+ * </pre>
+ * where sizes defaults to 1000,10000,100000.  The results are printed and written to scaling.csv in the work
+ * directory, which defaults to tortilla-scaling in the temporary directory; the synthetic classes are kept there and
+ * reused by later runs.
+ */
+public class MojoScalingHarness {
+	private static final long SEED=20161205L;
+	private static final String HEADER="beans,configuration,millis,beansPerSecond,accepted,generated,peakHeapUpperBoundMB,written,files";
+
+	public static void main(String[] args) throws Exception {
+		String sizes=args.length>0?args[0]:"1000,10000,100000";
+		File work=new File(args.length>1?args[1]:new File(System.getProperty("java.io.tmpdir"),"tortilla-scaling").getPath());
+		List<String> results=new ArrayList<String>();
+		results.add(HEADER);
+		System.out.println(HEADER);
+		for (String size : sizes.split(",")) {
+			int beans=Integer.parseInt(size.trim());
+			File dir=new File(work,String.valueOf(beans));
+			File classes=new File(dir,"classes");
+			long start=System.nanoTime();
+			int count=new SyntheticCodebase(beans,SEED).generate(new File(dir,"src"),classes);
+			System.out.println("# "+count+" synthetic classes of "+beans+" beans ready in "+(System.nanoTime()-start)/1000000+"ms");
+			File output=new File(dir,"generated");
+			delete(output);
+			for (String configuration : new String[]{"default","aggregate","excludes","incremental"}) {
+				String name=configuration.equals("incremental")?"default":configuration;
+				String result=run(beans,configuration,classes,new File(output,name),new File(dir,configuration+"-metrics.json"),
+						new File(output,name+"-manifest"));
+				results.add(result);
+				System.out.println(result);
+			}
+		}
+		StringBuilder csv=new StringBuilder();
+		for (String result : results) {
+			csv.append(result).append('\n');
+		}
+		Files.write(new File(work,"scaling.csv").toPath(),csv.toString().getBytes(Charsets.UTF_8));
+	}
+	/**
+	 * Run the Mojo once.
+	 * @param beans The number of beans in the code base.
+	 * @param configuration The name of the configuration.
+	 * @param classes The directory of the synthetic classes.
+	 * @param output The directory to generate test cases into.
+	 * @param metricsFile The file to write the metrics report of the Mojo to.
+	 * @param manifestFile The manifest of incremental generation into the output directory.
+	 * @return A line of CSV with the results of the run.
+	 * @throws Exception If the Mojo fails.
+	 */
+	private static String run(int beans, String configuration, File classes, File output, File metricsFile, File manifestFile) throws Exception {
+		TortillaMojo mojo=new TortillaMojo();
+		mojo.setLog(new SystemStreamLog() {
+			@Override
+			public void info(CharSequence content) { }
+		});
+		set(mojo,"project",new MavenProject() {
+			@Override
+			public List<String> getTestClasspathElements() {
+				return new ArrayList<String>();
+			}
+		});
+		set(mojo,"sourceDirectory",classes);
+		set(mojo,"outputDirectory",output);
+		set(mojo,"baseClass",TortillaBase.class.getName());
+		set(mojo,"equalsVerifier",true);
+		set(mojo,"equalsVerifierParameters",".suppress(nl.jqno.equalsverifier.Warning.NONFINAL_FIELDS,nl.jqno.equalsverifier.Warning.STRICT_INHERITANCE)");
+		set(mojo,"hashCodeThreshold",0.8);
+		set(mojo,"bytecodeFilter",true);
+		set(mojo,"incremental",true);
+		set(mojo,"manifestFile",manifestFile);
+		set(mojo,"metricsReport",true);
+		set(mojo,"metricsFile",metricsFile);
+		set(mojo,"aggregate",configuration.equals("aggregate"));
+		if (configuration.equals("excludes")) {
+			String[] excludes=new String[200];
+			excludes[0]="com.example.*.internal.*";
+			for (int i=1;i<excludes.length;i++) {
+				excludes[i]=i%2==0?"com.example.m"+i+".billing.model.Bean"+i:"com.example.*.api.p"+i+".*";
+			}
+			set(mojo,"excludes",excludes);
+		}
+		System.gc();
+		List<MemoryPoolMXBean> pools=new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType()==MemoryType.HEAP&&pool.isValid()) {
+				pool.resetPeakUsage();
+				pools.add(pool);
+			}
+		}
+		long start=System.nanoTime();
+		mojo.execute();
+		long nanos=System.nanoTime()-start;
+		long peak=0;
+		for (MemoryPoolMXBean pool : pools) {
+			peak+=pool.getPeakUsage().getUsed();
+		}
+		GenerationMetrics metrics=(GenerationMetrics)get(mojo,"metrics");
+		long accepted=metrics.get(GenerationMetrics.Count.ACCEPTED);
+		int written=((SourceFileWriter)get(mojo,"files")).getWritten();
+		return String.format(Locale.ROOT,"%d,%s,%d,%.1f,%d,%d,%.1f,%d,%d",beans,configuration,nanos/1000000,accepted/(nanos/1e9),
+				accepted,metrics.get(GenerationMetrics.Count.GENERATED),peak/1048576.0,written,count(output));
+	}
+	/**
+	 * Set a parameter of the Mojo, as Maven does.
+	 * @param mojo The Mojo.
+	 * @param name The name of the field of the parameter.
+	 * @param value The value.
+	 * @throws ReflectiveOperationException If the Mojo has no such field.
+	 */
+	private static void set(TortillaMojo mojo, String name, Object value) throws ReflectiveOperationException {
+		Field field=TortillaMojo.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(mojo,value);
+	}
+	/**
+	 * @param mojo The Mojo.
+	 * @param name The name of a field.
+	 * @return The value of the field.
+	 * @throws ReflectiveOperationException If the Mojo has no such field.
+	 */
+	private static Object get(TortillaMojo mojo, String name) throws ReflectiveOperationException {
+		Field field=TortillaMojo.class.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(mojo);
+	}
+	/**
+	 * @param dir A directory.
+	 * @return The number of files beneath the directory, whether written by the run or left by an earlier one.
+	 * @throws IOException If the directory cannot be read.
+	 */
+	private static int count(File dir) throws IOException {
+		final int[] count={0};
+		if (dir.isDirectory()) {
+			Files.walkFileTree(dir.toPath(),new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					count[0]++;
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		return count[0];
+	}
+	/**
+	 * Delete a directory and everything beneath it.
+	 * @param dir The directory.
+	 * @throws IOException If a file cannot be deleted.
+	 */
+	private static void delete(File dir) throws IOException {
+		if (!dir.exists()) { return; }
+		Files.walkFileTree(dir.toPath(),new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+				Files.delete(directory);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,71 @@
+package net.elementj.tortilla;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks finding declaration paths and resolving return types with TortillaReflection on the hierarchies of
+ * {@link Hierarchies}.  The cold benchmarks clear the cache of TortillaReflection first, as a new build would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(2)
+public class ReflectionBenchmark {
+	private Method deepGetter, wideGetter, mixedGetter;
+
+	@Setup
+	public void setUp() throws Exception {
+		deepGetter=Hierarchies.Deep0.class.getMethod("getValue");
+		wideGetter=Hierarchies.Wide7.class.getMethod("getValue7");
+		mixedGetter=Hierarchies.Sub2.class.getMethod("getB");
+	}
+	@Benchmark
+	public List<Class<?>> deepPath() {
+		return TortillaReflection.findPathToDeclaration(Hierarchies.DeepLeaf.class,Hierarchies.Deep0.class);
+	}
+	@Benchmark
+	public List<Class<?>> widePath() {
+		return TortillaReflection.findPathToDeclaration(Hierarchies.WideLeaf.class,Hierarchies.Wide7.class);
+	}
+	@Benchmark
+	public List<Class<?>> mixedPath() {
+		return TortillaReflection.findPathToDeclaration(Hierarchies.Sub3.class,Hierarchies.Sub1.class);
+	}
+	@Benchmark
+	public Class<?> deepReturnType() {
+		return TortillaReflection.getReturnType(Hierarchies.DeepLeaf.class,deepGetter);
+	}
+	@Benchmark
+	public Class<?> wideReturnType() {
+		return TortillaReflection.getReturnType(Hierarchies.WideLeaf.class,wideGetter);
+	}
+	@Benchmark
+	public Class<?> mixedReturnType() {
+		return TortillaReflection.getReturnType(Hierarchies.Sub3.class,mixedGetter);
+	}
+	@Benchmark
+	public Class<?> coldDeepReturnType() {
+		TortillaReflection.clearCache();
+		return TortillaReflection.getReturnType(Hierarchies.DeepLeaf.class,deepGetter);
+	}
+	@Benchmark
+	public Class<?> coldWideReturnType() {
+		TortillaReflection.clearCache();
+		return TortillaReflection.getReturnType(Hierarchies.WideLeaf.class,wideGetter);
+	}
+}
@@ -0,0 +1,81 @@
+package net.elementj.tortilla;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks rendering the test case of {@link SampleBean}, from its model and end to end from introspection with
+ * cold caches, as TortillaMojo does for a bean that changed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(2)
+public class RenderBenchmark {
+	private TestCaseRenderer renderer;
+	private BeanModel model;
+	private List<BeanModel> suite;
+
+	@Setup
+	public void setUp() throws Exception {
+		renderer=new TestCaseRenderer(null,TortillaBase.class.getName(),".suppress(nl.jqno.equalsverifier.Warning.NONFINAL_FIELDS)",20161205L);
+		model=model(SampleBean.class);
+		suite=Arrays.asList(model,model(SampleBean.Address.class));
+	}
+	@Benchmark
+	public String render() {
+		return renderer.render(model);
+	}
+	@Benchmark
+	public String renderSuite() {
+		return renderer.renderSuite("net.elementj.tortilla","TortillaBeansTest",suite);
+	}
+	@Benchmark
+	public String introspectAndRender() throws IntrospectionException {
+		Introspector.flushFromCaches(SampleBean.class);
+		TortillaReflection.clearCache();
+		return renderer.render(model(SampleBean.class));
+	}
+	/**
+	 * Model a bean the way TortillaMojo does, with its read/write properties ordered by name.
+	 * @param clazz The bean class.
+	 * @return The model.
+	 * @throws IntrospectionException If the bean cannot be introspected.
+	 */
+	private static BeanModel model(Class<?> clazz) throws IntrospectionException {
+		List<PropertyDescriptor> descriptors=new ArrayList<PropertyDescriptor>();
+		for (PropertyDescriptor d : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+			if (d.getReadMethod()!=null&&d.getWriteMethod()!=null) { descriptors.add(d); }
+		}
+		Collections.sort(descriptors,new Comparator<PropertyDescriptor>() {
+			public int compare(PropertyDescriptor o1, PropertyDescriptor o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		List<PropertyModel> properties=new ArrayList<PropertyModel>(descriptors.size());
+		for (PropertyDescriptor d : descriptors) {
+			properties.add(new PropertyModel(clazz,d));
+		}
+		return new BeanModel(clazz,properties,true,false,0);
+	}
+}
@@ -0,0 +1,66 @@
+package net.elementj.tortilla;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A synthetic bean with a property of each family of types Tortilla generates values for, used by the creation and
+ * rendering benchmarks.
+ */
+public class SampleBean {
+	private String name;
+	private int count;
+	private long id;
+	private boolean active;
+	private Double ratio;
+	private BigDecimal amount;
+	private TimeUnit unit;
+	private List<String> tags;
+	private Map<String,Integer> scores;
+	private int[] codes;
+	private Address address;
+	private Runnable callback;
+
+	public String getName() { return name; }
+	public void setName(String name) { this.name=name; }
+	public int getCount() { return count; }
+	public void setCount(int count) { this.count=count; }
+	public long getId() { return id; }
+	public void setId(long id) { this.id=id; }
+	public boolean isActive() { return active; }
+	public void setActive(boolean active) { this.active=active; }
+	public Double getRatio() { return ratio; }
+	public void setRatio(Double ratio) { this.ratio=ratio; }
+	public BigDecimal getAmount() { return amount; }
+	public void setAmount(BigDecimal amount) { this.amount=amount; }
+	public TimeUnit getUnit() { return unit; }
+	public void setUnit(TimeUnit unit) { this.unit=unit; }
+	public List<String> getTags() { return tags; }
+	public void setTags(List<String> tags) { this.tags=tags; }
+	public Map<String,Integer> getScores() { return scores; }
+	public void setScores(Map<String,Integer> scores) { this.scores=scores; }
+	public int[] getCodes() { return codes; }
+	public void setCodes(int[] codes) { this.codes=codes; }
+	public Address getAddress() { return address; }
+	public void setAddress(Address address) { this.address=address; }
+	public Runnable getCallback() { return callback; }
+	public void setCallback(Runnable callback) { this.callback=callback; }
+
+	/**
+	 * A nested bean.
+	 */
+	public static class Address {
+		private String street;
+		private String city;
+		private int zip;
+
+		public String getStreet() { return street; }
+		public void setStreet(String street) { this.street=street; }
+		public String getCity() { return city; }
+		public void setCity(String city) { this.city=city; }
+		public int getZip() { return zip; }
+		public void setZip(int zip) { this.zip=zip; }
+	}
+}
@@ -0,0 +1,187 @@
+package net.elementj.tortilla;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Writes a synthetic code base of compiled beans, shaped like a large application: modules of packages four to
+ * six levels deep, about 25 beans per package, beans extending generic base classes of their module, and the classes
+ * Tortilla has to skip beside them: an enum, an interface, an exception, a value class without a nullary constructor
+ * and an internal package per domain.  The same number of beans and seed always produce the same classes.
+ */
+public class SyntheticCodebase {
+	private static final String ROOT="com.example";
+	private static final String[] DOMAINS={"billing","catalog","customer","inventory","shipping"};
+	private static final String[] LAYERS={"model","dto","api"};
+	private static final String[] TYPES={"String","int","long","boolean","Integer","java.math.BigDecimal","java.util.Date",
+		"java.util.List<String>","java.util.Map<String,Integer>","Status"};
+	private static final int BEANS_PER_PACKAGE=25, BEANS_PER_MODULE=1000, BATCH=2000;
+	private final int beans;
+	private final long seed;
+	private int classes;
+
+	/**
+	 * @param beans The number of beans to write.
+	 * @param seed The seed of the shapes of the beans.
+	 */
+	public SyntheticCodebase(int beans, long seed) {
+		this.beans=beans;
+		this.seed=seed;
+	}
+	/**
+	 * Write the sources of the code base and compile them, unless the directory already holds this code base.
+	 * @param sourceDirectory The directory to write the sources into, beside the classes directory.
+	 * @param classesDirectory The directory to compile the classes into.
+	 * @return The number of classes written, including those that are not beans.
+	 * @throws IOException If a source cannot be written or does not compile.
+	 */
+	public int generate(File sourceDirectory, File classesDirectory) throws IOException {
+		File marker=new File(classesDirectory,".synthetic-"+beans+"-"+seed);
+		if (marker.isFile()) { return Integer.parseInt(new String(Files.readAllBytes(marker.toPath()),Charsets.UTF_8).trim()); }
+		Random random=new Random(seed);
+		List<File> bases=new ArrayList<File>();
+		List<File> sources=new ArrayList<File>();
+		classes=0;
+		int written=0;
+		for (int module=0;written<beans;module++) {
+			String base=ROOT+".m"+module+".base";
+			bases.add(write(sourceDirectory,base,"AbstractEntity","public abstract class AbstractEntity<ID extends java.io.Serializable> {\n"
+					+property("ID","id",true)+"}\n"));
+			bases.add(write(sourceDirectory,base,"Versioned","public abstract class Versioned<ID extends java.io.Serializable, V extends Comparable<V>> extends AbstractEntity<ID> {\n"
+					+property("V","version",true)+"}\n"));
+			bases.add(write(sourceDirectory,base,"Auditable","public interface Auditable<U> {\n\tU getAuditor();\n\tvoid setAuditor(U auditor);\n}\n"));
+			for (int pkg=0;pkg*BEANS_PER_PACKAGE<BEANS_PER_MODULE&&written<beans;pkg++) {
+				String domain=DOMAINS[pkg%DOMAINS.length];
+				String name=ROOT+".m"+module+"."+domain+"."+LAYERS[pkg/DOMAINS.length%LAYERS.length]+(pkg>=DOMAINS.length*LAYERS.length?".p"+pkg:"");
+				int count=Math.min(BEANS_PER_PACKAGE,beans-written);
+				writePackage(sourceDirectory,sources,random,base,name,count);
+				if (pkg<DOMAINS.length) {
+					sources.add(write(sourceDirectory,ROOT+".m"+module+"."+domain+".internal","Cache",
+							"public class Cache {\n"+property("String","region",true)+"}\n"));
+				}
+				written+=count;
+			}
+		}
+		compile(bases,classesDirectory);
+		for (int i=0;i<sources.size();i+=BATCH) {
+			compile(sources.subList(i,Math.min(i+BATCH,sources.size())),classesDirectory);
+		}
+		Files.write(marker.toPath(),String.valueOf(classes).getBytes(Charsets.UTF_8));
+		return classes;
+	}
+	/**
+	 * Write the beans of a package and the classes beside them.
+	 * @param dir The source directory.
+	 * @param sources The list to add the written sources to.
+	 * @param random The source of the shapes of the beans.
+	 * @param base The package of the generic base classes of the module.
+	 * @param pkg The package to write.
+	 * @param count The number of beans to write.
+	 * @throws IOException If a source cannot be written.
+	 */
+	private void writePackage(File dir, List<File> sources, Random random, String base, String pkg, int count) throws IOException {
+		sources.add(write(dir,pkg,"Status","public enum Status { ACTIVE, SUSPENDED, CLOSED }\n"));
+		sources.add(write(dir,pkg,"Repository","public interface Repository<T> {\n\tT find(long id);\n}\n"));
+		sources.add(write(dir,pkg,"NotFoundException","public class NotFoundException extends Exception {\n"
+				+"\tprivate static final long serialVersionUID=1L;\n"+property("String","key",true)+"}\n"));
+		sources.add(write(dir,pkg,"Money","public final class Money {\n\tprivate final long cents;\n"
+				+"\tpublic Money(long cents) { this.cents=cents; }\n\tpublic long getCents() { return cents; }\n}\n"));
+		for (int i=0;i<count;i++) {
+			String name="Bean"+i;
+			StringBuilder sb=new StringBuilder();
+			switch (random.nextInt(10)) {
+			case 0: case 1: case 2: case 3:
+				sb.append("public class ").append(name).append(" extends ").append(base).append(".Versioned<Long,Integer> {\n");
+				break;
+			case 4: case 5: case 6:
+				sb.append("public class ").append(name).append(" extends ").append(base).append(".AbstractEntity<String> implements ")
+					.append(base).append(".Auditable<String> {\n").append(property("String","auditor",true));
+				break;
+			default:
+				sb.append("public class ").append(name).append(" {\n");
+			}
+			int properties=3+random.nextInt(8);
+			for (int p=0;p<properties;p++) {
+				String type=i>0&&random.nextInt(8)==0?"Bean"+random.nextInt(i):TYPES[random.nextInt(TYPES.length)];
+				sb.append(property(type,"field"+p,random.nextInt(12)>0));
+			}
+			if (random.nextInt(4)==0) {
+				sb.append("\t@Override\n\tpublic boolean equals(Object o) { return o instanceof ").append(name)
+					.append("&&java.util.Objects.equals(field0,((").append(name).append(")o).field0); }\n")
+					.append("\t@Override\n\tpublic int hashCode() { return java.util.Objects.hashCode(field0); }\n");
+			}
+			sources.add(write(dir,pkg,name,sb.append("}\n").toString()));
+		}
+	}
+	/**
+	 * @param type The type of the property.
+	 * @param name The name of the property.
+	 * @param writable false for a read only property.
+	 * @return The source of the field and accessors of the property.
+	 */
+	private static String property(String type, String name, boolean writable) {
+		String upper=name.substring(0,1).toUpperCase(Locale.ROOT)+name.substring(1);
+		StringBuilder sb=new StringBuilder();
+		sb.append("\tprivate ").append(type).append(' ').append(name).append(";\n");
+		sb.append("\tpublic ").append(type).append(type.equals("boolean")?" is":" get").append(upper).append("() { return ").append(name).append("; }\n");
+		if (writable) {
+			sb.append("\tpublic void set").append(upper).append('(').append(type).append(' ').append(name).append(") { this.").append(name).append('=').append(name).append("; }\n");
+		}
+		return sb.toString();
+	}
+	/**
+	 * Write the source of a class.
+	 * @param dir The source directory.
+	 * @param pkg The package of the class.
+	 * @param name The simple name of the class.
+	 * @param body The source of the class, after its package declaration.
+	 * @return The file written.
+	 * @throws IOException If the source cannot be written.
+	 */
+	private File write(File dir, String pkg, String name, String body) throws IOException {
+		File pkgDir=new File(dir,pkg.replace('.','/'));
+		if (!pkgDir.isDirectory()&&!pkgDir.mkdirs()) { throw new IOException("Failed to create directory "+pkgDir); }
+		File file=new File(pkgDir,name+".java");
+		Writer writer=Files.newBufferedWriter(file.toPath(),Charsets.UTF_8);
+		try { writer.write("package "+pkg+";\n\n"+body); }
+		finally { writer.close(); }
+		classes++;
+		return file;
+	}
+	/**
+	 * Compile sources against the classes already compiled.
+	 * @param sources The sources.
+	 * @param classesDirectory The directory to compile the classes into.
+	 * @throws IOException If the sources do not compile.
+	 */
+	private static void compile(List<File> sources, File classesDirectory) throws IOException {
+		JavaCompiler compiler=ToolProvider.getSystemJavaCompiler();
+		if (compiler==null) { throw new IOException("No Java compiler is available, run with a JDK."); }
+		if (!classesDirectory.isDirectory()&&!classesDirectory.mkdirs()) { throw new IOException("Failed to create directory "+classesDirectory); }
+		DiagnosticCollector<JavaFileObject> diagnostics=new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager files=compiler.getStandardFileManager(diagnostics,Locale.ROOT,Charsets.UTF_8);
+		try {
+			List<String> options=Arrays.asList("-d",classesDirectory.getPath(),"-classpath",classesDirectory.getPath(),"-g:none","-nowarn","-proc:none");
+			if (!compiler.getTask(null,files,diagnostics,options,null,files.getJavaFileObjectsFromFiles(sources)).call()) {
+				throw new IOException("Synthetic sources failed to compile: "+diagnostics.getDiagnostics());
+			}
+		} finally {
+			files.close();
+		}
+	}
+}
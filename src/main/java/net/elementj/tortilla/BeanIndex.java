@@ -0,0 +1,37 @@
+package net.elementj.tortilla;
+
+import java.util.List;
+
+/**
+ * Writes the index of beans read by {@link TortillaRuntime} in runtime mode.
+ */
+class BeanIndex {
+	private BeanIndex() { }
+	/**
+	 * Render the index of a set of beans, in the format documented by {@link TortillaRuntime}.
+	 * @param models The models of the beans, in the order their checks should run.
+	 * @param equalsVerifierParameters The parameters to pass to equals verifier, or null.
+	 * @return The content of the index.
+	 */
+	static String render(List<BeanModel> models, String equalsVerifierParameters) {
+		StringBuilder sb=new StringBuilder(models.size()*256);
+		if (equalsVerifierParameters!=null) {
+			sb.append(TortillaRuntime.VERIFIER).append('\t').append(equalsVerifierParameters.replace('\t',' ').replace('\n',' ')).append('\n');
+		}
+		for (BeanModel model : models) {
+			char equals=!model.isEqualsContract()?TortillaRuntime.NO_EQUALS:model.isRedefinedSuperclass()?TortillaRuntime.EQUALS_REDEFINED:TortillaRuntime.EQUALS;
+			sb.append(TortillaRuntime.BEAN).append('\t').append(model.getClassName()).append('\t').append(equals).append('\n');
+			if (model.isHashCodeDistribution()) {
+				sb.append(TortillaRuntime.HASH_CODE).append('\t').append(model.getHashCodeThreshold()).append('\n');
+			}
+			for (PropertyModel p : model.getProperties()) {
+				sb.append(TortillaRuntime.PROPERTY).append('\t').append(p.getName())
+					.append('\t').append(p.getReadMethod())
+					.append('\t').append(p.getWriteMethod())
+					.append('\t').append(p.getWriteMethodParameterType())
+					.append('\t').append(p.getBinaryType()).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+}
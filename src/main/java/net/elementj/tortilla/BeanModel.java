@@ -0,0 +1,84 @@
+package net.elementj.tortilla;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything needed to render the test case of a bean, taken from the bean class once it has been introspected.
+ * It holds no reference to the class, so it can be shared between executions with different class loaders.
+ */
+class BeanModel {
+	private final String className;
+	private final String packageName;
+	private final String simpleName;
+	private final List<PropertyModel> properties;
+	private final boolean equalsContract;
+	private final boolean redefinedSuperclass;
+	private final double hashCodeThreshold;
+
+	/**
+	 * @param clazz The bean class.
+	 * @param properties The properties to test, in the order their tests are rendered.
+	 * @param equalsContract true if an equals contract test should be rendered.
+	 * @param redefinedSuperclass true if a superclass redefines equals or hashCode.
+	 * @param hashCodeThreshold The minimum spread of hash codes required by the hashCode distribution test, or 0 if
+	 * no such test should be rendered.
+	 */
+	BeanModel(Class<?> clazz, List<PropertyModel> properties, boolean equalsContract, boolean redefinedSuperclass, double hashCodeThreshold) {
+		this.className=clazz.getName();
+		this.packageName=clazz.getPackage().getName();
+		this.simpleName=clazz.getSimpleName();
+		this.properties=Collections.unmodifiableList(properties);
+		this.equalsContract=equalsContract;
+		this.redefinedSuperclass=redefinedSuperclass;
+		this.hashCodeThreshold=hashCodeThreshold;
+	}
+	/**
+	 * @return The binary name of the bean class.
+	 */
+	String getClassName() {
+		return className;
+	}
+	/**
+	 * @return The name of the bean class as it appears in source.
+	 */
+	String getSourceName() {
+		return className.replace('$','.');
+	}
+	String getPackageName() {
+		return packageName;
+	}
+	String getSimpleName() {
+		return simpleName;
+	}
+	/**
+	 * @return The properties to test, ordered by name.
+	 */
+	List<PropertyModel> getProperties() {
+		return properties;
+	}
+	/**
+	 * @return true if an equals contract test should be rendered.
+	 */
+	boolean isEqualsContract() {
+		return equalsContract;
+	}
+	/**
+	 * @return true if a superclass redefines equals or hashCode.
+	 */
+	boolean isRedefinedSuperclass() {
+		return redefinedSuperclass;
+	}
+	/**
+	 * @return true if a hashCode distribution test should be rendered.
+	 */
+	boolean isHashCodeDistribution() {
+		return hashCodeThreshold>0;
+	}
+	/**
+	 * @return The minimum spread of hash codes required by the hashCode distribution test.
+	 */
+	double getHashCodeThreshold() {
+		return hashCodeThreshold;
+	}
+}
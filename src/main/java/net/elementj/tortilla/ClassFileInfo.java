@@ -0,0 +1,225 @@
+package net.elementj.tortilla;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Summary of a class file, read directly from its bytes so that the class never has to be loaded.
+ * Only the details needed to decide whether a class is a test case candidate are retained.
+ */
+class ClassFileInfo {
+	static final int ACC_PUBLIC=0x0001, ACC_STATIC=0x0008, ACC_INTERFACE=0x0200, ACC_ABSTRACT=0x0400, ACC_ANNOTATION=0x2000, ACC_ENUM=0x4000;
+	private static final int MAGIC=0xCAFEBABE;
+	private static final int CONSTANT_UTF8=1, CONSTANT_INTEGER=3, CONSTANT_FLOAT=4, CONSTANT_LONG=5, CONSTANT_DOUBLE=6,
+		CONSTANT_CLASS=7, CONSTANT_STRING=8, CONSTANT_FIELDREF=9, CONSTANT_METHODREF=10, CONSTANT_INTERFACE_METHODREF=11,
+		CONSTANT_NAME_AND_TYPE=12, CONSTANT_METHOD_HANDLE=15, CONSTANT_METHOD_TYPE=16, CONSTANT_DYNAMIC=17,
+		CONSTANT_INVOKE_DYNAMIC=18, CONSTANT_MODULE=19, CONSTANT_PACKAGE=20;
+	private final String name;
+	private final String superName;
+	private final String[] interfaces;
+	private final int access;
+	private final boolean publicNullaryConstructor;
+	private final Set<String> getters;
+	private final Set<String> setters;
+
+	private ClassFileInfo(String name, String superName, String[] interfaces, int access, boolean publicNullaryConstructor, Set<String> getters, Set<String> setters) {
+		this.name=name;
+		this.superName=superName;
+		this.interfaces=interfaces;
+		this.access=access;
+		this.publicNullaryConstructor=publicNullaryConstructor;
+		this.getters=getters;
+		this.setters=setters;
+	}
+	/**
+	 * Parse a class file.
+	 * @param is The stream to read the class file from.  The stream is not closed.
+	 * @return The class file summary.
+	 * @throws IOException If the stream cannot be read or does not contain a well formed class file.
+	 */
+	static ClassFileInfo parse(InputStream is) throws IOException {
+		DataInputStream in=new DataInputStream(is);
+		if (in.readInt()!=MAGIC) { throw new IOException("Not a class file."); }
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+		int count=in.readUnsignedShort();
+		String[] utf8=new String[count];
+		int[] classIndex=new int[count];
+		for (int i=1;i<count;i++) {
+			int tag=in.readUnsignedByte();
+			switch (tag) {
+			case CONSTANT_UTF8: utf8[i]=in.readUTF(); break;
+			case CONSTANT_CLASS: classIndex[i]=in.readUnsignedShort(); break;
+			case CONSTANT_STRING: case CONSTANT_METHOD_TYPE: case CONSTANT_MODULE: case CONSTANT_PACKAGE: skip(in,2); break;
+			case CONSTANT_METHOD_HANDLE: skip(in,3); break;
+			case CONSTANT_INTEGER: case CONSTANT_FLOAT: case CONSTANT_FIELDREF: case CONSTANT_METHODREF: case CONSTANT_INTERFACE_METHODREF:
+			case CONSTANT_NAME_AND_TYPE: case CONSTANT_DYNAMIC: case CONSTANT_INVOKE_DYNAMIC: skip(in,4); break;
+			case CONSTANT_LONG: case CONSTANT_DOUBLE: skip(in,8); i++; break;
+			default: throw new IOException("Unknown constant pool tag "+tag);
+			}
+		}
+		int access=in.readUnsignedShort();
+		String name=className(utf8,classIndex,in.readUnsignedShort());
+		String superName=className(utf8,classIndex,in.readUnsignedShort());
+		String[] interfaces=new String[in.readUnsignedShort()];
+		for (int i=0;i<interfaces.length;i++) {
+			interfaces[i]=className(utf8,classIndex,in.readUnsignedShort());
+		}
+		int fields=in.readUnsignedShort();
+		for (int i=0;i<fields;i++) {
+			skip(in,6);
+			skipAttributes(in);
+		}
+		boolean nullary=false;
+		Set<String> getters=new HashSet<String>(), setters=new HashSet<String>();
+		int methods=in.readUnsignedShort();
+		for (int i=0;i<methods;i++) {
+			int methodAccess=in.readUnsignedShort();
+			String methodName=utf8(utf8,in.readUnsignedShort()), descriptor=utf8(utf8,in.readUnsignedShort());
+			skipAttributes(in);
+			if ((methodAccess&ACC_PUBLIC)==0) { continue; }
+			if ("<init>".equals(methodName)) {
+				nullary|="()V".equals(descriptor);
+			} else if ((methodAccess&ACC_STATIC)==0) {
+				addAccessor(getters,setters,methodName,descriptor);
+			}
+		}
+		return new ClassFileInfo(name,superName,interfaces,access,nullary,getters,setters);
+	}
+	/**
+	 * Record a method that looks like a bean getter or setter.
+	 * @param getters The property names of getters found so far.
+	 * @param setters The property names of setters found so far.
+	 * @param methodName The name of the method.
+	 * @param descriptor The JVM descriptor of the method.
+	 */
+	private static void addAccessor(Set<String> getters, Set<String> setters, String methodName, String descriptor) {
+		if (methodName.startsWith("get")&&methodName.length()>3&&descriptor.startsWith("()")&&!descriptor.endsWith(")V")) {
+			getters.add(methodName.substring(3));
+		} else if (methodName.startsWith("is")&&methodName.length()>2&&"()Z".equals(descriptor)) {
+			getters.add(methodName.substring(2));
+		} else if (methodName.startsWith("set")&&methodName.length()>3&&descriptor.endsWith(")V")&&parameterCount(descriptor)==1) {
+			setters.add(methodName.substring(3));
+		}
+	}
+	/**
+	 * Count the parameters in a method descriptor.
+	 * @param descriptor The JVM method descriptor.
+	 * @return The number of parameters, or -1 if the descriptor is malformed.
+	 */
+	private static int parameterCount(String descriptor) {
+		int count=0, i=1;
+		while (descriptor.charAt(i)!=')') {
+			char c=descriptor.charAt(i);
+			if (c=='[') { i++; continue; }
+			if (c=='L') {
+				i=descriptor.indexOf(';',i);
+				if (i<0) { return -1; }
+			}
+			i++;
+			count++;
+		}
+		return count;
+	}
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		int attributes=in.readUnsignedShort();
+		for (int i=0;i<attributes;i++) {
+			skip(in,2);
+			skip(in,in.readInt());
+		}
+	}
+	/**
+	 * Skip bytes in the stream, failing if the stream ends first.
+	 * @param in The stream.
+	 * @param count The number of bytes to skip.
+	 * @throws IOException If the stream ends or cannot be read.
+	 */
+	private static void skip(DataInputStream in, int count) throws IOException {
+		while (count>0) {
+			int skipped=in.skipBytes(count);
+			if (skipped<=0) {
+				in.readByte(); // throws EOFException at the end of the stream
+				skipped=1;
+			}
+			count-=skipped;
+		}
+	}
+	/**
+	 * Resolve a class constant of the constant pool to a binary class name.
+	 * @param utf8 The UTF-8 constants of the constant pool.
+	 * @param classIndex The name indices of the class constants of the constant pool.
+	 * @param index The index of a class constant, or 0 for none.
+	 * @return The binary class name, or null if the index is 0.
+	 * @throws IOException If the index is not that of a class constant.
+	 */
+	private static String className(String[] utf8, int[] classIndex, int index) throws IOException {
+		if (index==0) { return null; }
+		if (index>=classIndex.length||classIndex[index]==0) { throw new IOException("Invalid class constant index "+index); }
+		return utf8(utf8,classIndex[index]).replace('/','.');
+	}
+	/**
+	 * @param utf8 The UTF-8 constants of the constant pool.
+	 * @param index The index of a UTF-8 constant.
+	 * @return The constant.
+	 * @throws IOException If the index is not that of a UTF-8 constant.
+	 */
+	private static String utf8(String[] utf8, int index) throws IOException {
+		if (index>=utf8.length||utf8[index]==null) { throw new IOException("Invalid UTF-8 constant index "+index); }
+		return utf8[index];
+	}
+	/**
+	 * @return The binary name of the class, e.g. java.util.Map$Entry.
+	 */
+	String getName() {
+		return name;
+	}
+	/**
+	 * @return The binary name of the superclass, or null for java.lang.Object.
+	 */
+	String getSuperName() {
+		return superName;
+	}
+	/**
+	 * @return The binary names of the directly implemented interfaces.
+	 */
+	String[] getInterfaces() {
+		return interfaces;
+	}
+	boolean isPublic() {
+		return (access&ACC_PUBLIC)!=0;
+	}
+	boolean isAbstract() {
+		return (access&ACC_ABSTRACT)!=0;
+	}
+	boolean isInterface() {
+		return (access&(ACC_INTERFACE|ACC_ANNOTATION))!=0;
+	}
+	boolean isEnum() {
+		return (access&ACC_ENUM)!=0;
+	}
+	/**
+	 * @return true if the class declares a public constructor without parameters.
+	 */
+	boolean hasPublicNullaryConstructor() {
+		return publicNullaryConstructor;
+	}
+	/**
+	 * @return The capitalized property names of the public getters declared by the class.
+	 */
+	Set<String> getGetters() {
+		return getters;
+	}
+	/**
+	 * @return The capitalized property names of the public single argument setters declared by the class.
+	 */
+	Set<String> getSetters() {
+		return setters;
+	}
+	@Override
+	public String toString() {
+		return name;
+	}
+}
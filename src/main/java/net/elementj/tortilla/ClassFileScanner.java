@@ -0,0 +1,123 @@
+package net.elementj.tortilla;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Discovers class files beneath a directory, walking subdirectories in parallel on a fork/join pool.
+ */
+class ClassFileScanner {
+	/**
+	 * Decides whether a discovered class file is a candidate.  Called concurrently from the scanning threads.
+	 */
+	interface Filter {
+		/**
+		 * @param file The class file.
+		 * @param className The name of the class, derived from the path of the file.
+		 * @return true if the class should be added to the candidates.
+		 */
+		boolean accept(Path file, String className);
+	}
+	private final Path root;
+	private final int threads;
+	private final Filter filter;
+
+	/**
+	 * @param root The directory to scan, which is also the root of the package hierarchy.
+	 * @param threads The number of threads to scan with, or 0 or less to use one per available processor.
+	 * @param filter The filter deciding which classes are candidates.
+	 */
+	ClassFileScanner(Path root, int threads, Filter filter) {
+		this.root=root;
+		this.threads=threads>0?threads:Runtime.getRuntime().availableProcessors();
+		this.filter=filter;
+	}
+	/**
+	 * Scan for class files.
+	 * @return The names of the candidate classes.
+	 * @throws IOException If a directory cannot be read.
+	 */
+	Queue<String> scan() throws IOException {
+		Queue<String> candidates=new ConcurrentLinkedQueue<String>();
+		ForkJoinPool pool=new ForkJoinPool(threads);
+		try {
+			pool.invoke(new DirectoryTask(root,candidates));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			pool.shutdown();
+		}
+		return candidates;
+	}
+	/**
+	 * Determine the name of a class from the location of its class file.
+	 * @param root The root of the package hierarchy.
+	 * @param file The class file.
+	 * @return The full class name.
+	 */
+	static String className(Path root, Path file) {
+		Path relative=root.relativize(file);
+		StringBuilder sb=new StringBuilder();
+		for (Path element : relative) {
+			if (sb.length()>0) { sb.append('.'); }
+			sb.append(element.toString());
+		}
+		sb.setLength(sb.length()-6); // remove .class from the end
+		return sb.toString();
+	}
+	/**
+	 * @param filename The name of a file.
+	 * @return true if the file is a class file.
+	 */
+	static boolean isClassFile(String filename) {
+		return filename.endsWith(".class")||filename.endsWith(".CLASS");
+	}
+	/**
+	 * Scans a single directory, forking a task for each subdirectory.
+	 */
+	@SuppressWarnings("serial")
+	private class DirectoryTask extends RecursiveAction {
+		private final Path dir;
+		private final Queue<String> candidates;
+
+		DirectoryTask(Path dir, Queue<String> candidates) {
+			this.dir=dir;
+			this.candidates=candidates;
+		}
+		@Override
+		protected void compute() {
+			List<DirectoryTask> subtasks=new LinkedList<DirectoryTask>();
+			try {
+				DirectoryStream<Path> stream=Files.newDirectoryStream(dir);
+				try {
+					for (Path path : stream) {
+						if (Files.isDirectory(path)) {
+							DirectoryTask task=new DirectoryTask(path,candidates);
+							task.fork();
+							subtasks.add(task);
+						} else if (isClassFile(path.getFileName().toString())) {
+							String className=className(root,path);
+							if (filter.accept(path,className)) { candidates.add(className); }
+						}
+					}
+				} finally {
+					stream.close();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			for (DirectoryTask task : subtasks) {
+				task.join();
+			}
+		}
+	}
+}
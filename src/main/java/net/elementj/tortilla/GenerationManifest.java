@@ -0,0 +1,175 @@
+package net.elementj.tortilla;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Records the fingerprint of every bean a test case was generated for, and the file that was generated,
+ * so that later executions can skip beans that have not changed and remove tests for beans that no longer exist.
+ * Benchmarks are recorded the same way, relative to their own directory.  Entries are stored as
+ * className=fingerprint;path lines ordered by class name, those of benchmarks prefixed by benchmark:, without a
+ * timestamp, so an execution that changes nothing leaves the file untouched.
+ */
+class GenerationManifest {
+	/**
+	 * The name of the manifest in the output directory, where earlier versions stored it.
+	 */
+	static final String LEGACY_FILENAME=".tortilla-manifest";
+	private static final String HEADER="# Generated by tortilla, do not edit\n";
+	private static final String BENCHMARK_PREFIX="benchmark:";
+	private static final char SEPARATOR=';';
+	private final File file;
+	private final Map<String,Entry> entries=new TreeMap<String,Entry>();
+	private final Map<String,Entry> benchmarks=new TreeMap<String,Entry>();
+
+	/**
+	 * @param file The file the manifest is stored in.
+	 */
+	GenerationManifest(File file) {
+		this.file=file;
+	}
+	/**
+	 * Load a manifest.  A missing or unreadable manifest results in an empty manifest.
+	 * @param file The file the manifest is stored in.
+	 * @return The manifest.
+	 */
+	static GenerationManifest load(File file) {
+		GenerationManifest manifest=new GenerationManifest(file);
+		if (!file.isFile()) { return manifest; }
+		String content;
+		try { content=new String(Files.readAllBytes(file.toPath()),Charsets.UTF_8); }
+		catch (IOException e) {
+			return manifest;
+		}
+		for (String line : content.split("\r?\n")) {
+			int eq=line.indexOf('=');
+			int idx=line.indexOf(SEPARATOR,eq+1);
+			if (line.startsWith("#")||eq<=0||idx<0) { continue; }
+			String className=line.substring(0,eq), path=line.substring(idx+1);
+			if (className.startsWith(BENCHMARK_PREFIX)) {
+				manifest.putBenchmark(className.substring(BENCHMARK_PREFIX.length()),line.substring(eq+1,idx),path.length()>0?path:null);
+			} else {
+				manifest.put(className,line.substring(eq+1,idx),path.length()>0?path:null);
+			}
+		}
+		return manifest;
+	}
+	/**
+	 * Write the manifest, unless the file already has the same content.
+	 * @return true if the manifest was written, false if it was unchanged.
+	 * @throws IOException If the manifest cannot be written.
+	 */
+	boolean save() throws IOException {
+		byte[] content=render().getBytes(Charsets.UTF_8);
+		if (file.isFile()&&file.length()==content.length&&Arrays.equals(Files.readAllBytes(file.toPath()),content)) { return false; }
+		File dir=file.getAbsoluteFile().getParentFile();
+		if (dir!=null&&!dir.isDirectory()&&!dir.mkdirs()) { throw new IOException("Failed to create directory "+dir); }
+		Files.write(file.toPath(),content);
+		return true;
+	}
+	/**
+	 * @return The content of the manifest file.
+	 */
+	String render() {
+		StringBuilder sb=new StringBuilder(HEADER);
+		render(sb,"",entries);
+		render(sb,BENCHMARK_PREFIX,benchmarks);
+		return sb.toString();
+	}
+	/**
+	 * @param sb The content of the manifest file.
+	 * @param prefix The prefix of the class names.
+	 * @param entries The entries to append to the content.
+	 */
+	private static void render(StringBuilder sb, String prefix, Map<String,Entry> entries) {
+		for (Map.Entry<String,Entry> e : entries.entrySet()) {
+			String path=e.getValue().path;
+			sb.append(prefix).append(e.getKey()).append('=').append(e.getValue().fingerprint).append(SEPARATOR).append(path!=null?path:"").append('\n');
+		}
+	}
+	/**
+	 * Record a bean.
+	 * @param className The name of the bean class.
+	 * @param fingerprint The fingerprint of the bean.
+	 * @param path The path of the generated test relative to the output directory, or null if no test was generated.
+	 */
+	void put(String className, String fingerprint, String path) {
+		entries.put(className,new Entry(fingerprint,path));
+	}
+	/**
+	 * @param className The name of the bean class.
+	 * @return The recorded fingerprint, or null if the bean is not recorded.
+	 */
+	String getFingerprint(String className) {
+		Entry entry=entries.get(className);
+		return entry!=null?entry.fingerprint:null;
+	}
+	/**
+	 * @param className The name of the bean class.
+	 * @return The recorded path of the generated test, or null if the bean is not recorded or no test was generated.
+	 */
+	String getPath(String className) {
+		Entry entry=entries.get(className);
+		return entry!=null?entry.path:null;
+	}
+	/**
+	 * @param className The name of the bean class.
+	 * @return true if the bean is recorded.
+	 */
+	boolean contains(String className) {
+		return entries.containsKey(className);
+	}
+	/**
+	 * @return The names of the recorded bean classes.
+	 */
+	Set<String> getClassNames() {
+		return entries.keySet();
+	}
+	/**
+	 * Record the benchmark of a bean.
+	 * @param className The name of the bean class.
+	 * @param fingerprint The fingerprint of the bean.
+	 * @param path The path of the generated benchmark relative to the benchmark directory, or null if no benchmark was generated.
+	 */
+	void putBenchmark(String className, String fingerprint, String path) {
+		benchmarks.put(className,new Entry(fingerprint,path));
+	}
+	/**
+	 * @param className The name of the bean class.
+	 * @return The fingerprint recorded for the benchmark of the bean, or null if the bean is not recorded.
+	 */
+	String getBenchmarkFingerprint(String className) {
+		Entry entry=benchmarks.get(className);
+		return entry!=null?entry.fingerprint:null;
+	}
+	/**
+	 * @param className The name of the bean class.
+	 * @return The recorded path of the generated benchmark, or null if the bean is not recorded or no benchmark was generated.
+	 */
+	String getBenchmarkPath(String className) {
+		Entry entry=benchmarks.get(className);
+		return entry!=null?entry.path:null;
+	}
+	/**
+	 * @return The names of the bean classes recorded with benchmarks.
+	 */
+	Set<String> getBenchmarkClassNames() {
+		return benchmarks.keySet();
+	}
+	private static class Entry {
+		private final String fingerprint;
+		private final String path;
+
+		Entry(String fingerprint, String path) {
+			this.fingerprint=fingerprint;
+			this.path=path;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package net.elementj.tortilla;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Collects the wall clock and CPU time spent in each phase of an execution of the plugin, and counts the classes
+ * and properties passing through it, for a JSON report.  Phases that run on several threads accumulate the time of
+ * every thread, so their total may exceed the wall clock time of the execution.  Safe for concurrent use.
+ */
+class GenerationMetrics {
+	/**
+	 * The phases of an execution.  Scanning includes the bytecode filter, which is also reported on its own.
+	 */
+	enum Phase {
+		CLASSLOADER("classloader"), SCAN("scan"), FILTER("filter"), LOAD("load"), FINGERPRINT("fingerprint"),
+		INTROSPECTION("introspection"), TYPE_RESOLUTION("typeResolution"), RENDER("render"), WRITE("write");
+
+		private final String key;
+
+		private Phase(String key) {
+			this.key=key;
+		}
+	}
+	/**
+	 * The counters of classes.
+	 */
+	enum Count {
+		SEEN("seen"), LOADED("loaded"), ACCEPTED("accepted"), GENERATED("generated"), UNCHANGED("unchanged");
+
+		private final String key;
+
+		private Count(String key) {
+			this.key=key;
+		}
+	}
+	private static final ThreadMXBean THREADS=ManagementFactory.getThreadMXBean();
+	private final boolean cpuTime=THREADS.isCurrentThreadCpuTimeSupported()&&THREADS.isThreadCpuTimeEnabled();
+	private final long started=System.nanoTime();
+	private final AtomicLong[] wall=atomics(Phase.values().length);
+	private final AtomicLong[] cpu=atomics(Phase.values().length);
+	private final AtomicLong[] calls=atomics(Phase.values().length);
+	private final AtomicLong[] counts=atomics(Count.values().length);
+	private final ConcurrentMap<String,AtomicInteger> skippedProperties=new ConcurrentHashMap<String,AtomicInteger>();
+
+	/**
+	 * Start timing a phase on the current thread.
+	 * @param phase The phase.
+	 * @return The timer to stop when the phase ends, on the same thread.
+	 */
+	Timer start(Phase phase) {
+		return new Timer(phase);
+	}
+	/**
+	 * Count a class.
+	 * @param count The counter.
+	 */
+	void count(Count count) {
+		counts[count.ordinal()].incrementAndGet();
+	}
+	/**
+	 * Count several classes.
+	 * @param count The counter.
+	 * @param delta The number of classes.
+	 */
+	void count(Count count, int delta) {
+		counts[count.ordinal()].addAndGet(delta);
+	}
+	/**
+	 * @param count The counter.
+	 * @return The number of classes counted.
+	 */
+	long get(Count count) {
+		return counts[count.ordinal()].get();
+	}
+	/**
+	 * Count a property that is not tested.
+	 * @param reason Why the property is skipped, a JSON identifier such as "excluded".
+	 */
+	void skipProperty(String reason) {
+		AtomicInteger counter=skippedProperties.get(reason);
+		if (counter==null) {
+			AtomicInteger created=new AtomicInteger();
+			counter=skippedProperties.putIfAbsent(reason,created);
+			if (counter==null) { counter=created; }
+		}
+		counter.incrementAndGet();
+	}
+	/**
+	 * @param phase A phase.
+	 * @return The number of times the phase was timed.
+	 */
+	long getCalls(Phase phase) {
+		return calls[phase.ordinal()].get();
+	}
+	/**
+	 * Render the report as JSON.  Times are in milliseconds; CPU times are -1 when the JVM cannot measure them.
+	 * @return The report.
+	 */
+	String toJson() {
+		StringBuilder sb=new StringBuilder(1024);
+		sb.append("{\n  \"wallMillis\": ").append(millis(System.nanoTime()-started)).append(",\n  \"phases\": {");
+		for (Phase phase : Phase.values()) {
+			int i=phase.ordinal();
+			sb.append(i>0?",\n":"\n").append("    \"").append(phase.key).append("\": { \"calls\": ").append(calls[i].get())
+				.append(", \"wallMillis\": ").append(millis(wall[i].get()))
+				.append(", \"cpuMillis\": ").append(cpuTime?millis(cpu[i].get()):"-1").append(" }");
+		}
+		sb.append("\n  },\n  \"classes\": {");
+		for (Count count : Count.values()) {
+			sb.append(count.ordinal()>0?",":"").append(" \"").append(count.key).append("\": ").append(counts[count.ordinal()].get());
+		}
+		sb.append(" },\n  \"skippedProperties\": {");
+		boolean first=true;
+		for (Map.Entry<String,AtomicInteger> e : new TreeMap<String,AtomicInteger>(skippedProperties).entrySet()) {
+			sb.append(first?"":",").append(" \"").append(e.getKey()).append("\": ").append(e.getValue().get());
+			first=false;
+		}
+		return sb.append(" }\n}\n").toString();
+	}
+	/**
+	 * Write the report.
+	 * @param file The file to write the JSON report to.
+	 * @throws IOException If the report cannot be written.
+	 */
+	void write(File file) throws IOException {
+		File dir=file.getAbsoluteFile().getParentFile();
+		if (dir!=null&&!dir.isDirectory()&&!dir.mkdirs()) { throw new IOException("Failed to create directory "+dir); }
+		Files.write(file.toPath(),toJson().getBytes(Charsets.UTF_8));
+	}
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT,"%.3f",nanos/1e6);
+	}
+	private static AtomicLong[] atomics(int length) {
+		AtomicLong[] atomics=new AtomicLong[length];
+		for (int i=0;i<length;i++) {
+			atomics[i]=new AtomicLong();
+		}
+		return atomics;
+	}
+	/**
+	 * Times one run of a phase on one thread.
+	 */
+	final class Timer {
+		private final Phase phase;
+		private final long wallStart;
+		private final long cpuStart;
+
+		private Timer(Phase phase) {
+			this.phase=phase;
+			this.cpuStart=cpuTime?THREADS.getCurrentThreadCpuTime():0;
+			this.wallStart=System.nanoTime();
+		}
+		/**
+		 * Stop timing, adding the time since the timer started to its phase.
+		 */
+		void stop() {
+			int i=phase.ordinal();
+			wall[i].addAndGet(System.nanoTime()-wallStart);
+			if (cpuTime) { cpu[i].addAndGet(THREADS.getCurrentThreadCpuTime()-cpuStart); }
+			calls[i].incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package net.elementj.tortilla;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches bean properties against exclusion rules of the form package.name.BeanClassName.propertyName, where
+ * both the class and property parts may contain wildcards.  Rules are split and grouped by property part once,
+ * so properties are matched with a hash lookup on the property name followed by a compiled class name match.
+ */
+class PropertyMatcher {
+	private final Map<String,WildcardMatcher> literalProperties=new HashMap<String,WildcardMatcher>();
+	private final List<WildcardMatcher> wildcardProperties=new ArrayList<WildcardMatcher>();
+	private final List<WildcardMatcher> wildcardPropertyClasses=new ArrayList<WildcardMatcher>();
+	private final List<String> invalid=new ArrayList<String>();
+
+	/**
+	 * @param rules The exclusion rules.
+	 */
+	PropertyMatcher(String... rules) {
+		Map<String,List<String>> literal=new LinkedHashMap<String,List<String>>(), wildcard=new LinkedHashMap<String,List<String>>();
+		for (String rule : rules) {
+			int idx=rule.lastIndexOf('.');
+			if (idx<0) {
+				invalid.add(rule);
+				continue;
+			}
+			String property=rule.substring(idx+1);
+			Map<String,List<String>> group=property.indexOf('*')<0&&property.indexOf('?')<0?literal:wildcard;
+			List<String> classes=group.get(property);
+			if (classes==null) {
+				classes=new ArrayList<String>();
+				group.put(property,classes);
+			}
+			classes.add(rule.substring(0,idx));
+		}
+		for (Map.Entry<String,List<String>> e : literal.entrySet()) {
+			literalProperties.put(e.getKey(),new WildcardMatcher(e.getValue().toArray(new String[e.getValue().size()])));
+		}
+		for (Map.Entry<String,List<String>> e : wildcard.entrySet()) {
+			wildcardProperties.add(new WildcardMatcher(e.getKey()));
+			wildcardPropertyClasses.add(new WildcardMatcher(e.getValue().toArray(new String[e.getValue().size()])));
+		}
+	}
+	/**
+	 * Find a rule matching a property.
+	 * @param className The name of the class declaring the property.
+	 * @param propertyName The name of the property.
+	 * @return The first rule found that matches the property, or null if none match.
+	 */
+	String match(String className, String propertyName) {
+		WildcardMatcher classes=literalProperties.get(propertyName);
+		String classRule;
+		if (classes!=null&&(classRule=classes.match(className))!=null) {
+			return classRule+"."+propertyName;
+		}
+		for (int i=0;i<wildcardProperties.size();i++) {
+			String propertyRule=wildcardProperties.get(i).match(propertyName);
+			if (propertyRule!=null&&(classRule=wildcardPropertyClasses.get(i).match(className))!=null) {
+				return classRule+"."+propertyRule;
+			}
+		}
+		return null;
+	}
+	/**
+	 * @return The rules that could not be split into a class and property part.
+	 */
+	List<String> getInvalidRules() {
+		return invalid;
+	}
+}
@@ -0,0 +1,130 @@
+package net.elementj.tortilla;
+
+import java.beans.PropertyDescriptor;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The details of a bean property needed to render its test, with the property type already resolved.  Unlike
+ * a {@link PropertyDescriptor} it holds no reference to any class, so it can outlive the class loader it was
+ * introspected from.
+ */
+class PropertyModel {
+	private final String name;
+	private final String type;
+	private final String binaryType;
+	private final boolean primitive;
+	private final boolean array;
+	private final boolean primitiveArray;
+	private final String readMethod;
+	private final String readMethodSignature;
+	private final String writeMethod;
+	private final String writeMethodParameterType;
+	private final String[] typeArguments;
+
+	/**
+	 * @param beanClass The bean class the property is tested for.
+	 * @param descriptor The descriptor of a read/write property of the bean.
+	 */
+	PropertyModel(Class<?> beanClass, PropertyDescriptor descriptor) {
+		Class<?> typeClass=TortillaReflection.getActualPropertyType(beanClass,descriptor);
+		this.name=descriptor.getName();
+		this.type=sourceName(typeClass);
+		this.binaryType=typeClass.getName();
+		this.primitive=typeClass.isPrimitive();
+		this.array=typeClass.isArray();
+		this.primitiveArray=array&&typeClass.getComponentType().isPrimitive();
+		this.readMethod=descriptor.getReadMethod().getName();
+		this.readMethodSignature=descriptor.getReadMethod().toGenericString();
+		this.writeMethod=descriptor.getWriteMethod().getName();
+		this.writeMethodParameterType=descriptor.getWriteMethod().getParameterTypes()[0].getName();
+		this.typeArguments=typeArguments(beanClass,descriptor,typeClass);
+	}
+	/**
+	 * Resolve the element type of a collection property, or the key and value types of a map property.
+	 * @param beanClass The bean class the property is tested for.
+	 * @param descriptor The descriptor of the property.
+	 * @param typeClass The resolved type of the property.
+	 * @return The type arguments as they appear in source, or an empty array if the property is neither or is raw.
+	 */
+	private static String[] typeArguments(Class<?> beanClass, PropertyDescriptor descriptor, Class<?> typeClass) {
+		int count=Collection.class.isAssignableFrom(typeClass)?1:Map.class.isAssignableFrom(typeClass)?2:0;
+		if (count==0) { return new String[0]; }
+		Class<?>[] arguments=TortillaReflection.getReturnTypeArguments(beanClass,descriptor.getReadMethod());
+		if (arguments.length!=count) { return new String[0]; }
+		String[] ret=new String[count];
+		for (int i=0;i<count;i++) {
+			ret[i]=sourceName(arguments[i]);
+		}
+		return ret;
+	}
+	/**
+	 * @param clazz A class.
+	 * @return The name of the class as it appears in source, e.g. java.util.Map.Entry or int[].
+	 */
+	private static String sourceName(Class<?> clazz) {
+		return clazz.isArray()?clazz.getComponentType().getName().replace('$','.')+"[]":clazz.getName().replace('$','.');
+	}
+	/**
+	 * @return The name of the property.
+	 */
+	String getName() {
+		return name;
+	}
+	/**
+	 * @return The resolved type of the property as it appears in source, e.g. java.util.Map.Entry or int[].
+	 */
+	String getType() {
+		return type;
+	}
+	/**
+	 * @return The binary name of the resolved type of the property, as returned by {@link Class#getName()}.
+	 */
+	String getBinaryType() {
+		return binaryType;
+	}
+	boolean isPrimitive() {
+		return primitive;
+	}
+	boolean isArray() {
+		return array;
+	}
+	/**
+	 * @return true if the property is a one dimensional array of a primitive type, e.g. int[].
+	 */
+	boolean isPrimitiveArray() {
+		return primitiveArray;
+	}
+	/**
+	 * @return The name of the getter.
+	 */
+	String getReadMethod() {
+		return readMethod;
+	}
+	/**
+	 * @return The generic string of the getter, as returned by {@link java.lang.reflect.Method#toGenericString()}.
+	 */
+	String getReadMethodSignature() {
+		return readMethodSignature;
+	}
+	/**
+	 * @return The name of the setter.
+	 */
+	String getWriteMethod() {
+		return writeMethod;
+	}
+	/**
+	 * @return The binary name of the declared parameter type of the setter, which may be the erasure of the
+	 * property type.
+	 */
+	String getWriteMethodParameterType() {
+		return writeMethodParameterType;
+	}
+	/**
+	 * @return The element type of a collection property, or the key and value types of a map property, as they
+	 * appear in source, or an empty array for other properties and raw collections and maps.
+	 */
+	String[] getTypeArguments() {
+		return typeArguments.clone();
+	}
+}
@@ -0,0 +1,136 @@
+package net.elementj.tortilla;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Optional;
+import com.google.common.hash.HashCode;
+
+/**
+ * Class metadata and bean models shared by every execution of the plugin within one build, so that modules of a
+ * reactor do not each read the same dependency jars and introspect the same beans again.  Maven keeps the plugin's
+ * classes loaded for the whole build, so the cache lives in a static field and is replaced when a different build
+ * starts.
+ * <p>
+ * Class file details are only shared for classes read from jar files, and are keyed on the path, length and
+ * modification time of the jar, so a jar rebuilt during the build is read again.  Bean models are keyed on the
+ * fingerprint of the bean, which covers the bytecode of the bean and its supertypes and the plugin configuration.
+ */
+class ReactorCache {
+	private static WeakReference<Object> currentBuild=new WeakReference<Object>(null);
+	private static ReactorCache current;
+	private final ConcurrentMap<String,Optional<ClassFileInfo>> classFiles=new ConcurrentHashMap<String,Optional<ClassFileInfo>>();
+	private final ConcurrentMap<String,HashCode> bytecodeHashes=new ConcurrentHashMap<String,HashCode>();
+	private final ConcurrentMap<String,Optional<BeanModel>> beans=new ConcurrentHashMap<String,Optional<BeanModel>>();
+
+	ReactorCache() { }
+	/**
+	 * Get the cache of a build, discarding the cache of any previous build.
+	 * @param build An object that identifies the build, such as its execution request.  Compared by identity.
+	 * @return The cache.
+	 */
+	static synchronized ReactorCache forBuild(Object build) {
+		if (current==null||currentBuild.get()!=build) {
+			current=new ReactorCache();
+			currentBuild=new WeakReference<Object>(build);
+		}
+		return current;
+	}
+	/**
+	 * Fingerprint the jar files of a classpath.
+	 * @param elements The classpath elements.
+	 * @return The classpath, which maps resources to keys in this cache.
+	 */
+	Classpath classpath(Collection<URL> elements) {
+		return new Classpath(elements);
+	}
+	/**
+	 * @param fingerprint The fingerprint of a bean.
+	 * @return The model of the bean, absent if no test case is generated for it, or null if not cached.
+	 */
+	Optional<BeanModel> getBean(String fingerprint) {
+		return beans.get(fingerprint);
+	}
+	void putBean(String fingerprint, Optional<BeanModel> model) {
+		beans.putIfAbsent(fingerprint,model);
+	}
+	/**
+	 * @param url The URL of a classpath element.
+	 * @return The file of the element, or null if it is not a file URL.
+	 */
+	private static File file(URL url) {
+		if (!"file".equals(url.getProtocol())) { return null; }
+		try { return new File(url.toURI()); }
+		catch (URISyntaxException e) { return null; }
+		catch (IllegalArgumentException e) { return null; }
+	}
+	/**
+	 * The fingerprints of the jar files on the classpath of one execution.
+	 */
+	class Classpath {
+		private final Map<String,String> jars=new HashMap<String,String>();
+
+		private Classpath(Collection<URL> elements) {
+			for (URL element : elements) {
+				File file=file(element);
+				if (file!=null&&file.isFile()) {
+					jars.put(element.toExternalForm(),file.getAbsolutePath()+';'+file.length()+';'+file.lastModified());
+				}
+			}
+		}
+		/**
+		 * Determine the key of a resource in the shared cache.
+		 * @param resource The URL of a resource, as returned by a class loader over the classpath.
+		 * @return The key, or null if the resource is not in one of the jar files of the classpath.
+		 */
+		String key(URL resource) {
+			if (!"jar".equals(resource.getProtocol())) { return null; }
+			String spec=resource.getPath();
+			int idx=spec.indexOf("!/");
+			if (idx<0) { return null; }
+			String jar=jars.get(spec.substring(0,idx));
+			return jar!=null?jar+spec.substring(idx+1):null;
+		}
+		/**
+		 * @param resource The URL of a class file.
+		 * @return The shared class file details, absent if the class file could not be read, or null if not cached.
+		 */
+		Optional<ClassFileInfo> getClassFileInfo(URL resource) {
+			String key=key(resource);
+			return key!=null?classFiles.get(key):null;
+		}
+		/**
+		 * Share the details of a class file, if it is in a jar file.
+		 * @param resource The URL of the class file.
+		 * @param info The class file details, absent if the class file could not be read.
+		 */
+		void putClassFileInfo(URL resource, Optional<ClassFileInfo> info) {
+			String key=key(resource);
+			if (key!=null) { classFiles.putIfAbsent(key,info); }
+		}
+		/**
+		 * @param resource The URL of a class file.
+		 * @return The shared hash of the class file, or null if not cached.
+		 */
+		HashCode getBytecodeHash(URL resource) {
+			String key=key(resource);
+			return key!=null?bytecodeHashes.get(key):null;
+		}
+		/**
+		 * Share the hash of a class file, if it is in a jar file.
+		 * @param resource The URL of the class file.
+		 * @param hash The hash of the class file.
+		 */
+		void putBytecodeHash(URL resource, HashCode hash) {
+			String key=key(resource);
+			if (key!=null) { bytecodeHashes.putIfAbsent(key,hash); }
+		}
+	}
+}
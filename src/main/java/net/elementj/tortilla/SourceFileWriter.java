@@ -0,0 +1,61 @@
+package net.elementj.tortilla;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes generated files only when their content changes, so that unchanged files keep their modification time
+ * and are not compiled or indexed again.  Files are replaced atomically through a sibling temporary file created
+ * with default permissions, so a reader never sees a partially written file.  Safe for concurrent use on distinct
+ * files.
+ */
+class SourceFileWriter {
+	private final AtomicInteger written=new AtomicInteger();
+	private final AtomicInteger unchanged=new AtomicInteger();
+
+	/**
+	 * Write a file, unless it already has the given content.
+	 * @param file The file to write.
+	 * @param content The content of the file.
+	 * @return true if the file was written, false if it already had the content.
+	 * @throws IOException If the file cannot be read or written.
+	 */
+	boolean write(File file, byte[] content) throws IOException {
+		Path target=file.toPath();
+		if (file.isFile()&&file.length()==content.length&&Arrays.equals(Files.readAllBytes(target),content)) {
+			unchanged.incrementAndGet();
+			return false;
+		}
+		Path temp=target.resolveSibling("."+file.getName()+".tmp");
+		try {
+			Files.write(temp,content);
+			try {
+				Files.move(temp,target,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp,target,StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		written.incrementAndGet();
+		return true;
+	}
+	/**
+	 * @return The number of files written.
+	 */
+	int getWritten() {
+		return written.get();
+	}
+	/**
+	 * @return The number of files left untouched because their content was unchanged.
+	 */
+	int getUnchanged() {
+		return unchanged.get();
+	}
+}
@@ -0,0 +1,107 @@
+package net.elementj.tortilla;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+/**
+ * A source template with ${name} variables, compiled once into literal segments and variable indexes so that
+ * rendering is a sequence of appends into a caller supplied buffer.  Variables are declared when the template is
+ * compiled and passed by position when it is rendered.
+ */
+class SourceTemplate {
+	private static final String RESOURCE_PATH="templates/";
+	static final String SUFFIX=".template";
+	private final String name;
+	private final String source;
+	private final String[] literals;
+	private final int[] variables;
+
+	private SourceTemplate(String name, String source, String[] literals, int[] variables) {
+		this.name=name;
+		this.source=source;
+		this.literals=literals;
+		this.variables=variables;
+	}
+	/**
+	 * Compile a template.
+	 * @param name The name of the template, used in error messages.
+	 * @param source The text of the template.
+	 * @param declared The names of the variables the template may use, in the order their values are rendered.
+	 * @return The compiled template.
+	 * @throws IllegalArgumentException If the template uses an undeclared variable or a variable is not closed.
+	 */
+	static SourceTemplate compile(String name, String source, String... declared) {
+		List<String> names=Arrays.asList(declared);
+		List<String> literals=new ArrayList<String>();
+		List<Integer> variables=new ArrayList<Integer>();
+		int pos=0, start;
+		while ((start=source.indexOf("${",pos))>=0) {
+			int end=source.indexOf('}',start);
+			if (end<0) { throw new IllegalArgumentException("Unclosed variable at offset "+start+" of template "+name); }
+			String variable=source.substring(start+2,end);
+			int idx=names.indexOf(variable);
+			if (idx<0) { throw new IllegalArgumentException("Unknown variable ${"+variable+"} in template "+name+", expected one of "+names); }
+			literals.add(source.substring(pos,start));
+			variables.add(idx);
+			pos=end+1;
+		}
+		literals.add(source.substring(pos));
+		int[] indexes=new int[variables.size()];
+		for (int i=0;i<indexes.length;i++) {
+			indexes[i]=variables.get(i);
+		}
+		return new SourceTemplate(name,source,literals.toArray(new String[literals.size()]),indexes);
+	}
+	/**
+	 * Load and compile a template, preferring a file in the template directory over the built-in template.
+	 * @param name The name of the template, which is the file name without the .template suffix.
+	 * @param directory The directory of user supplied templates, or null to use the built-in template.
+	 * @param declared The names of the variables the template may use, in the order their values are rendered.
+	 * @return The compiled template.
+	 * @throws IOException If the template cannot be read.
+	 * @throws IllegalArgumentException If the template is invalid.
+	 */
+	static SourceTemplate load(String name, File directory, String... declared) throws IOException {
+		File file=directory!=null?new File(directory,name+SUFFIX):null;
+		InputStream is=file!=null&&file.isFile()?new FileInputStream(file):SourceTemplate.class.getResourceAsStream(RESOURCE_PATH+name+SUFFIX);
+		if (is==null) { throw new FileNotFoundException("Built-in template "+name+" is missing."); }
+		try {
+			return compile(file!=null&&file.isFile()?file.getPath():name,new String(ByteStreams.toByteArray(is),Charsets.UTF_8),declared);
+		} finally {
+			is.close();
+		}
+	}
+	/**
+	 * Render the template.
+	 * @param out The buffer to append to.
+	 * @param values The values of the declared variables, in the order they were declared.
+	 */
+	void render(StringBuilder out, String... values) {
+		out.append(literals[0]);
+		for (int i=0;i<variables.length;i++) {
+			out.append(values[variables[i]]);
+			out.append(literals[i+1]);
+		}
+	}
+	/**
+	 * @return The name of the template, or the path of the file it was loaded from.
+	 */
+	String getName() {
+		return name;
+	}
+	/**
+	 * @return The text the template was compiled from.
+	 */
+	String getSource() {
+		return source;
+	}
+}
@@ -0,0 +1,175 @@
+package net.elementj.tortilla;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Optional;
+
+/**
+ * Index of class files and supertype closures, read through a class loader without loading any classes.
+ * Each closure is computed once from the memoized closures of the direct supertypes, so classes sharing a
+ * hierarchy share the work.  Safe for concurrent use.
+ */
+class SupertypeIndex {
+	private final ClassLoader loader;
+	private final ReactorCache.Classpath shared;
+	private final ConcurrentMap<String,Optional<ClassFileInfo>> infos=new ConcurrentHashMap<String,Optional<ClassFileInfo>>();
+	private final ConcurrentMap<String,Optional<Closure>> closures=new ConcurrentHashMap<String,Optional<Closure>>();
+
+	/**
+	 * @param loader The class loader to read class files from.
+	 */
+	SupertypeIndex(ClassLoader loader) {
+		this(loader,null);
+	}
+	/**
+	 * @param loader The class loader to read class files from.
+	 * @param shared The classpath of the loader in the reactor cache, to share the class files of jars with other
+	 * executions, or null.
+	 */
+	SupertypeIndex(ClassLoader loader, ReactorCache.Classpath shared) {
+		this.loader=loader;
+		this.shared=shared;
+	}
+	/**
+	 * Add a class file that was already read.
+	 * @param info The class file summary.
+	 */
+	void add(ClassFileInfo info) {
+		infos.putIfAbsent(info.getName(),Optional.of(info));
+	}
+	/**
+	 * Read a class file, without loading the class.
+	 * @param className The name of the class.
+	 * @return The class file summary, or null if it cannot be found or read.
+	 */
+	ClassFileInfo getClassFileInfo(String className) {
+		Optional<ClassFileInfo> cached=infos.get(className);
+		if (cached!=null) { return cached.orNull(); }
+		ClassFileInfo info=null;
+		URL resource=loader.getResource(className.replace('.','/')+".class");
+		if (resource!=null) {
+			Optional<ClassFileInfo> sharedInfo=shared!=null?shared.getClassFileInfo(resource):null;
+			if (sharedInfo!=null) {
+				info=sharedInfo.orNull();
+			} else {
+				info=read(resource);
+				if (shared!=null) { shared.putClassFileInfo(resource,Optional.fromNullable(info)); }
+			}
+		}
+		infos.putIfAbsent(className,Optional.fromNullable(info));
+		return info;
+	}
+	/**
+	 * @param resource The URL of a class file.
+	 * @return The class file summary, or null if it cannot be read.
+	 */
+	private static ClassFileInfo read(URL resource) {
+		try {
+			InputStream is=new BufferedInputStream(resource.openStream());
+			try { return ClassFileInfo.parse(is); }
+			finally { is.close(); }
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	/**
+	 * Get the supertype closure of a class.
+	 * @param className The name of the class.
+	 * @return The closure, or null if the class file of the class cannot be read.
+	 */
+	Closure getClosure(String className) {
+		Optional<Closure> cached=closures.get(className);
+		if (cached!=null) { return cached.orNull(); }
+		ClassFileInfo info=getClassFileInfo(className);
+		Closure closure=null;
+		if (info!=null) {
+			Set<String> names=new HashSet<String>(), getters=new HashSet<String>(info.getGetters()), setters=new HashSet<String>(info.getSetters());
+			names.add(className);
+			boolean complete=true;
+			if (info.getSuperName()!=null) {
+				complete&=merge(info.getSuperName(),names,getters,setters);
+			}
+			for (String iface : info.getInterfaces()) {
+				complete&=merge(iface,names,getters,setters);
+			}
+			closure=new Closure(names,getters,setters,complete);
+		}
+		closures.putIfAbsent(className,Optional.fromNullable(closure));
+		return closure;
+	}
+	/**
+	 * Merge the closure of a supertype into the closure being computed.
+	 * @return false if the closure of the supertype is missing or incomplete.
+	 */
+	private boolean merge(String supertype, Set<String> names, Set<String> getters, Set<String> setters) {
+		Closure closure=getClosure(supertype);
+		if (closure==null) {
+			names.add(supertype);
+			return false;
+		}
+		names.addAll(closure.names);
+		getters.addAll(closure.getters);
+		setters.addAll(closure.setters);
+		return closure.complete;
+	}
+	/**
+	 * Get the names of a loaded class and all of its supertypes.
+	 * @param clazz The class.
+	 * @return The names.
+	 */
+	static Set<String> names(Class<?> clazz) {
+		Set<String> names=new HashSet<String>();
+		addNames(clazz,names);
+		return names;
+	}
+	private static void addNames(Class<?> clazz, Set<String> names) {
+		if (clazz==null||!names.add(clazz.getName())) { return; }
+		addNames(clazz.getSuperclass(),names);
+		for (Class<?> iface : clazz.getInterfaces()) {
+			addNames(iface,names);
+		}
+	}
+	/**
+	 * A class together with all of its superclasses and interfaces.
+	 */
+	static class Closure {
+		private final Set<String> names;
+		private final Set<String> getters;
+		private final Set<String> setters;
+		private final boolean complete;
+
+		Closure(Set<String> names, Set<String> getters, Set<String> setters, boolean complete) {
+			this.names=Collections.unmodifiableSet(names);
+			this.getters=Collections.unmodifiableSet(getters);
+			this.setters=Collections.unmodifiableSet(setters);
+			this.complete=complete;
+		}
+		/**
+		 * @return The names of the class and all of its supertypes.
+		 */
+		Set<String> getNames() {
+			return names;
+		}
+		/**
+		 * @return true if any property has both a public getter and setter somewhere in the hierarchy.
+		 */
+		boolean hasAccessorPair() {
+			return !Collections.disjoint(getters,setters);
+		}
+		/**
+		 * @return false if the class file of any supertype could not be read, in which case the closure
+		 * only contains the names of the missing supertypes, not their supertypes.
+		 */
+		boolean isComplete() {
+			return complete;
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package net.elementj.tortilla;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders the source of test cases from bean models through {@link SourceTemplate}s.  The templates are compiled
+ * once per execution, and each test case is rendered into a buffer that is reused by the rendering thread.
+ * <p>
+ * Templates, and the variables available to them:
+ * <ul>
+ * <li>header - package, className, baseClass, beanClass, annotations</li>
+ * <li>suiteHeader - package, className, baseClass, annotations</li>
+ * <li>readWriteTest, primitiveReadWriteTest and arrayReadWriteTest - methodName, setup, property, Property,
+ * type, readMethod, readMethodSignature, writeMethod, beanClass, create</li>
+ * <li>equalsContractTest - methodName, beanClass, beanBinaryName, verifierOptions</li>
+ * <li>hashCodeDistributionTest - methodName, beanClass, threshold</li>
+ * <li>footer - className</li>
+ * <li>runtimeTest - className, baseClass, annotations</li>
+ * <li>benchmarkHeader - package, className, baseClass, beanClass, annotations</li>
+ * <li>benchmarkFixture and benchmarkAccessor - the variables of the read/write tests</li>
+ * <li>benchmarkMethods - className, beanClass</li>
+ * </ul>
+ */
+class TestCaseRenderer {
+	private static final String[] HEADER_VARIABLES={"package","className","baseClass","beanClass","annotations"};
+	private static final String[] SUITE_HEADER_VARIABLES={"package","className","baseClass","annotations"};
+	private static final String[] PROPERTY_VARIABLES={"methodName","setup","property","Property","type","readMethod","readMethodSignature","writeMethod","beanClass","create"};
+	private static final String[] EQUALS_VARIABLES={"methodName","beanClass","beanBinaryName","verifierOptions"};
+	private static final String[] HASH_CODE_VARIABLES={"methodName","beanClass","threshold"};
+	private static final String[] FOOTER_VARIABLES={"className"};
+	private static final String[] RUNTIME_VARIABLES={"className","baseClass","annotations"};
+	private static final String[] BENCHMARK_METHODS_VARIABLES={"className","beanClass"};
+	private static final int INITIAL_CAPACITY=4096, MAX_RETAINED_CAPACITY=1<<20;
+	private static final ThreadLocal<StringBuilder> BUFFER=new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(INITIAL_CAPACITY);
+		}
+	};
+	private final String baseClass;
+	private final String equalsVerifierParameters;
+	private final String annotations;
+	private final SourceTemplate header, suiteHeader, readWrite, primitiveReadWrite, arrayReadWrite, equalsContract, hashCodeDistribution, footer, runtimeTest;
+	private final SourceTemplate benchmarkHeader, benchmarkFixture, benchmarkMethods, benchmarkAccessor;
+
+	/**
+	 * @param templateDirectory The directory of user supplied templates, or null to use the built-in templates.
+	 * @param baseClass The class generated test cases extend.
+	 * @param equalsVerifierParameters The parameters to pass to equals verifier, or null.
+	 * @param seed The base seed of the random values of generated tests, or null to leave it to the tests.
+	 * @throws IOException If a template cannot be read.
+	 * @throws IllegalArgumentException If a template is invalid.
+	 */
+	TestCaseRenderer(File templateDirectory, String baseClass, String equalsVerifierParameters, Long seed) throws IOException {
+		this.baseClass=baseClass;
+		this.equalsVerifierParameters=equalsVerifierParameters!=null?equalsVerifierParameters:"";
+		this.annotations=seed!=null?"@net.elementj.tortilla.TortillaBase.Seed("+seed+"L)\n":"";
+		header=SourceTemplate.load("header",templateDirectory,HEADER_VARIABLES);
+		suiteHeader=SourceTemplate.load("suiteHeader",templateDirectory,SUITE_HEADER_VARIABLES);
+		readWrite=SourceTemplate.load("readWriteTest",templateDirectory,PROPERTY_VARIABLES);
+		primitiveReadWrite=SourceTemplate.load("primitiveReadWriteTest",templateDirectory,PROPERTY_VARIABLES);
+		arrayReadWrite=SourceTemplate.load("arrayReadWriteTest",templateDirectory,PROPERTY_VARIABLES);
+		equalsContract=SourceTemplate.load("equalsContractTest",templateDirectory,EQUALS_VARIABLES);
+		hashCodeDistribution=SourceTemplate.load("hashCodeDistributionTest",templateDirectory,HASH_CODE_VARIABLES);
+		footer=SourceTemplate.load("footer",templateDirectory,FOOTER_VARIABLES);
+		runtimeTest=SourceTemplate.load("runtimeTest",templateDirectory,RUNTIME_VARIABLES);
+		benchmarkHeader=SourceTemplate.load("benchmarkHeader",templateDirectory,HEADER_VARIABLES);
+		benchmarkFixture=SourceTemplate.load("benchmarkFixture",templateDirectory,PROPERTY_VARIABLES);
+		benchmarkMethods=SourceTemplate.load("benchmarkMethods",templateDirectory,BENCHMARK_METHODS_VARIABLES);
+		benchmarkAccessor=SourceTemplate.load("benchmarkAccessor",templateDirectory,PROPERTY_VARIABLES);
+	}
+	/**
+	 * @return The compiled templates.
+	 */
+	SourceTemplate[] getTemplates() {
+		return new SourceTemplate[]{header,suiteHeader,readWrite,primitiveReadWrite,arrayReadWrite,equalsContract,hashCodeDistribution,footer,runtimeTest,
+				benchmarkHeader,benchmarkFixture,benchmarkMethods,benchmarkAccessor};
+	}
+	/**
+	 * Render the test case of a bean.
+	 * @param model The model of the bean.
+	 * @return The source of the test case.
+	 */
+	String render(BeanModel model) {
+		StringBuilder out=BUFFER.get();
+		out.setLength(0);
+		String beanClass=model.getSourceName();
+		String className=model.getSimpleName()+"BeanTest";
+		header.render(out,model.getPackageName(),className,baseClass,beanClass,annotations);
+		for (PropertyModel p : model.getProperties()) {
+			renderReadWriteTest(out,p,"test"+upperFirstChar(p.getName())+"RW","",beanClass);
+		}
+		if (model.isEqualsContract()) {
+			renderEqualsContractTest(out,model,"equalsContract");
+		}
+		if (model.isHashCodeDistribution()) {
+			renderHashCodeDistributionTest(out,model,"hashCodeDistribution");
+		}
+		footer.render(out,className);
+		return release(out);
+	}
+	/**
+	 * Render a suite testing several beans of one package.  Each test method creates its own instance of the
+	 * bean, and is named after the bean so that failures remain traceable, e.g. testAddress_StreetRW for the
+	 * street property of the Address bean, or testOrder__Line_NumberRW for the number property of the nested bean
+	 * Order.Line.  Should two beans still map to the same method names, the later one is numbered, e.g.
+	 * testOrder__Line_2_NumberRW.
+	 * @param packageName The package of the suite and the beans.
+	 * @param className The simple name of the suite class.
+	 * @param models The models of the beans to test.
+	 * @return The source of the suite.
+	 */
+	String renderSuite(String packageName, String className, List<BeanModel> models) {
+		StringBuilder out=BUFFER.get();
+		out.setLength(0);
+		suiteHeader.render(out,packageName,className,baseClass,annotations);
+		Set<String> methods=new HashSet<String>();
+		for (BeanModel model : models) {
+			String beanClass=model.getSourceName();
+			String base=model.getClassName().substring(packageName.length()>0?packageName.length()+1:0).replace("$","__");
+			List<String> names=suiteMethodNames(model,base);
+			for (int n=2;!Collections.disjoint(methods,names);n++) {
+				names=suiteMethodNames(model,base+"_"+n);
+			}
+			methods.addAll(names);
+			Iterator<String> name=names.iterator();
+			String setup="\t\t"+beanClass+" instance=new "+beanClass+"();\n";
+			for (PropertyModel p : model.getProperties()) {
+				renderReadWriteTest(out,p,name.next(),setup,beanClass);
+			}
+			if (model.isEqualsContract()) {
+				renderEqualsContractTest(out,model,name.next());
+			}
+			if (model.isHashCodeDistribution()) {
+				renderHashCodeDistributionTest(out,model,name.next());
+			}
+		}
+		footer.render(out,className);
+		return release(out);
+	}
+	/**
+	 * Name the test methods of a bean within a suite, in the order they are rendered.
+	 * @param model The model of the bean.
+	 * @param id The identifier of the bean within the suite.
+	 * @return The names of the test methods.
+	 */
+	private static List<String> suiteMethodNames(BeanModel model, String id) {
+		List<String> names=new ArrayList<String>();
+		for (PropertyModel p : model.getProperties()) {
+			names.add("test"+id+"_"+upperFirstChar(p.getName())+"RW");
+		}
+		if (model.isEqualsContract()) {
+			names.add("test"+id+"_EqualsContract");
+		}
+		if (model.isHashCodeDistribution()) {
+			names.add("test"+id+"_HashCodeDistribution");
+		}
+		return names;
+	}
+	/**
+	 * Render the test that runs the checks of the bean index in runtime mode.
+	 * @param className The simple name of the test class.
+	 * @return The source of the test.
+	 */
+	String renderRuntimeTest(String className) {
+		StringBuilder out=BUFFER.get();
+		out.setLength(0);
+		runtimeTest.render(out,className,baseClass,annotations);
+		return release(out);
+	}
+	/**
+	 * Render the JMH benchmark of a bean, which measures hashCode, equals against an equal and an unequal instance,
+	 * and setting and getting each property.  Property values are created by the base class in the setup.
+	 * @param model The model of the bean.
+	 * @return The source of the benchmark.
+	 */
+	String renderBenchmark(BeanModel model) {
+		StringBuilder out=BUFFER.get();
+		out.setLength(0);
+		String beanClass=model.getSourceName();
+		String className=model.getSimpleName()+"Benchmark";
+		benchmarkHeader.render(out,model.getPackageName(),className,baseClass,beanClass,annotations);
+		for (PropertyModel p : model.getProperties()) {
+			renderProperty(benchmarkFixture,out,p,"","",beanClass);
+		}
+		benchmarkMethods.render(out,className,beanClass);
+		for (PropertyModel p : model.getProperties()) {
+			renderProperty(benchmarkAccessor,out,p,p.getName()+"Accessors","",beanClass);
+		}
+		footer.render(out,className);
+		return release(out);
+	}
+	/**
+	 * Take the rendered source from the buffer of the current thread, discarding the buffer if it grew too large
+	 * to keep.
+	 * @param out The buffer.
+	 * @return The rendered source.
+	 */
+	private String release(StringBuilder out) {
+		String source=out.toString();
+		if (out.capacity()>MAX_RETAINED_CAPACITY) {
+			BUFFER.remove();
+		}
+		return source;
+	}
+	/**
+	 * Render a read/write test for a property.
+	 * @param out The buffer to render into.
+	 * @param property The property to test.
+	 * @param methodName The name of the test method.
+	 * @param setup Statements run at the start of the test method, each line indented and terminated.
+	 * @param beanClass The name of the bean class as it appears in source.
+	 */
+	void renderReadWriteTest(StringBuilder out, PropertyModel property, String methodName, String setup, String beanClass) {
+		renderProperty(property.isPrimitive()?primitiveReadWrite:property.isArray()?arrayReadWrite:readWrite,out,property,methodName,setup,beanClass);
+	}
+	/**
+	 * Render a template with the variables of a property.
+	 * @param template The template to render.
+	 * @param out The buffer to render into.
+	 * @param property The property.
+	 * @param methodName The name of the method to render, if any.
+	 * @param setup Statements run at the start of the method, each line indented and terminated.
+	 * @param beanClass The name of the bean class as it appears in source.
+	 */
+	private void renderProperty(SourceTemplate template, StringBuilder out, PropertyModel property, String methodName, String setup, String beanClass) {
+		template.render(out,methodName,setup,property.getName(),upperFirstChar(property.getName()),property.getType(),
+				property.getReadMethod(),property.getReadMethodSignature(),property.getWriteMethod(),beanClass,createExpression(property));
+	}
+	/**
+	 * Returns the expression creating a value of a property, which calls the primitive creator of TortillaBase,
+	 * e.g. createInt() or createIntArray(), for primitive and primitive array properties so that their values are
+	 * never boxed, and passes the element types of collections and maps so that they are filled with elements of
+	 * those types.
+	 * @param property The property.
+	 * @return The expression.
+	 */
+	static String createExpression(PropertyModel property) {
+		if (property.isPrimitive()) { return "create"+upperFirstChar(property.getType())+"()"; }
+		if (property.isPrimitiveArray()) { return "create"+upperFirstChar(property.getType().substring(0,property.getType().length()-2))+"Array()"; }
+		StringBuilder sb=new StringBuilder("create(").append(property.getType()).append(".class");
+		for (String argument : property.getTypeArguments()) {
+			sb.append(',').append(argument).append(".class");
+		}
+		return sb.append(')').toString();
+	}
+	/**
+	 * Render an equals contract test using jqno.nl's equalsverifier.
+	 * @param out The buffer to render into.
+	 * @param model The model of the bean to test.
+	 * @param methodName The name of the test method.
+	 */
+	void renderEqualsContractTest(StringBuilder out, BeanModel model, String methodName) {
+		String options=model.isRedefinedSuperclass()?".withRedefinedSuperclass()"+equalsVerifierParameters:equalsVerifierParameters;
+		equalsContract.render(out,methodName,model.getSourceName(),model.getClassName(),options);
+	}
+	/**
+	 * Render a test of the distribution of the hash codes of a bean.
+	 * @param out The buffer to render into.
+	 * @param model The model of the bean to test.
+	 * @param methodName The name of the test method.
+	 */
+	void renderHashCodeDistributionTest(StringBuilder out, BeanModel model, String methodName) {
+		hashCodeDistribution.render(out,methodName,model.getSourceName(),Double.toString(model.getHashCodeThreshold()));
+	}
+	/**
+	 * Returns a copy of a string with the first character in upper case.
+	 * @param str The string to copy.
+	 * @return The copied string.
+	 */
+	static String upperFirstChar(String str) {
+		if (str==null) { return null; }
+		if (str.length()==0) { return str; }
+		char[] prop=str.toCharArray();
+		prop[0]=Character.toUpperCase(prop[0]);
+		return new String(prop);
+	}
+}
@@ -1,29 +1,123 @@
 package net.elementj.tortilla;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.EnumSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.junit.Rule;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
 
 /**
  * Base class for generated JUnit tests
+ * <p>
+ * Values are random, but reproducible: each test method draws them from its own source, seeded from a base seed and
+ * the name of the test.  The base seed is taken from the tortilla.seed system property, else from the {@link Seed}
+ * of the test class, else chosen once per JVM, and it is printed when a test fails.
  */
 public class TortillaBase {
+	/**
+	 * The system property holding the base seed, which takes precedence over the {@link Seed} of a test class.
+	 */
+	public static final String SEED_PROPERTY="tortilla.seed";
+	/**
+	 * The system property holding the default depth to which created beans are populated, see {@link #getDepth()}.
+	 */
+	public static final String DEPTH_PROPERTY="tortilla.depth";
+	private static final long JVM_SEED=new SplittableRandom().nextLong();
+	private static final CreateEvents CREATE_EVENTS=CreateEvents.load();
 	private static final char MIN_CHAR=0x20, MAX_CHAR=0x7e, CHAR_RANGE=MAX_CHAR-MIN_CHAR;
-	private final Random random=new Random();
+	private static final int MAX_ARRAY_LENGTH=16, MAX_ELEMENTS=4;
+	private static final int HASH_SAMPLES=1000, MIN_HASH_SAMPLES=32;
+	private static final double HASH_LOAD_FACTOR=0.75;
+	private static final MethodType OBJECT_FACTORY=MethodType.methodType(Object.class), OBJECT_FUNCTION=MethodType.methodType(Object.class,Object.class);
+	/**
+	 * The factory of each class, resolved on first use.  Classes that cannot be created get a factory that fails,
+	 * so that they are not resolved again either.
+	 */
+	private static final ClassValue<Factory> FACTORIES=new ClassValue<Factory>() {
+		@Override
+		protected Factory computeValue(Class<?> clazz) {
+			return factory(clazz);
+		}
+	};
+	/**
+	 * The constructor of the proxy class of each mocked interface.  Proxy classes are defined by the class loader of
+	 * the interface, which always sees it, so the interface alone identifies the loader and the proxy class.
+	 */
+	private static final ClassValue<MethodHandle> PROXY_CONSTRUCTORS=new ClassValue<MethodHandle>() {
+		@Override
+		@SuppressWarnings("deprecation")
+		protected MethodHandle computeValue(Class<?> clazz) {
+			try {
+				Class<?> proxyClass=Proxy.getProxyClass(clazz.getClassLoader(),clazz);
+				Constructor<?> constructor=proxyClass.getConstructor(InvocationHandler.class);
+				if (!Modifier.isPublic(proxyClass.getModifiers())) { constructor.setAccessible(true); }
+				return MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Object.class,InvocationHandler.class));
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException("Unable to mock "+clazz,e);
+			}
+		}
+	};
+	/**
+	 * The setters of each class populated when beans are built to a depth.
+	 */
+	private static final ClassValue<Setter[]> SETTERS=new ClassValue<Setter[]>() {
+		@Override
+		protected Setter[] computeValue(Class<?> clazz) {
+			return setters(clazz);
+		}
+	};
+	private final SeededRandom random=new SeededRandom(seed(getClass(),getClass().getName()));
+	/**
+	 * Seeds the values of each test method, and reports the base seed when it fails.
+	 */
+	@Rule
+	public final TestRule tortillaSeed=new TestWatcher() {
+		@Override
+		protected void starting(Description description) {
+			random.reseed(seed(TortillaBase.this.getClass(),description.getDisplayName()));
+		}
+		@Override
+		protected void failed(Throwable e, Description description) {
+			System.err.println(description.getDisplayName()+" failed with random values of -D"+SEED_PROPERTY+"="+baseSeed(TortillaBase.this.getClass()));
+		}
+	};
+	private Map<Class<?>,Generator<?>> generators;
+	private final Graph graph=new Graph();
 	/**(
 	 * Mock an instance of an interface.
 	 * @param clazz
@@ -31,7 +125,12 @@ public class TortillaBase {
 	 */
 	@SuppressWarnings("unchecked")
 	protected<T> T mockInterface(Class<?> clazz) {
-		return (T)Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(), new Class<?>[]{clazz}, NOOPInvocationHandler.INSTANCE);		
+		try { return (T)PROXY_CONSTRUCTORS.get(clazz).invokeExact((InvocationHandler)NOOPInvocationHandler.INSTANCE); }
+		catch (RuntimeException e) { throw e; }
+		catch (Error e) { throw e; }
+		catch (Throwable e) {
+			throw new IllegalStateException("Unable to mock "+clazz,e);
+		}
 	}
 	/**
 	 * Create an instance of a class for testing purposes.
@@ -39,88 +138,307 @@ public class TortillaBase {
 	 * @return The instance
 	 */
 	protected<T> T create(Class<T> clazz) {	
-		return create(new HashSet<Class<?>>(),clazz);
+		if (CREATE_EVENTS==null||!CREATE_EVENTS.isEnabled()) { return create(graph.history,clazz); }
+		Object event=CREATE_EVENTS.begin();
+		try {
+			return create(graph.history,clazz);
+		} finally {
+			CREATE_EVENTS.commit(event,clazz!=null?clazz.getName():null,
+					clazz!=null&&graph.depth>0&&!clazz.isPrimitive()&&!clazz.isArray()?SETTERS.get(clazz).length:0);
+		}
 	}
 	/**
-	 * Create an instance of a class for testing purposes, keeping a history of objects created to avoid loops.
-	 * History is really just a placeholder at this point, since we're not attempting to use non-nullary constructors.
-	 * @param history A set of classes that have already been instantiated.
+	 * Create an instance of a class for testing purposes, keeping a history of the classes being created to avoid
+	 * loops.  A class stays in the history until its instance is created, populated included, so the history of
+	 * {@link #create(Class)} holds the classes of the beans being built around the current one.
+	 * @param history A set of the classes being instantiated.
 	 * @param clazz The class to instantiate.
 	 * @return The instance
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@SuppressWarnings("unchecked")
 	protected<T> T create(Set<Class<?>> history, Class<T> clazz) {
 		if (clazz==null) { return null; }
-		if (history.contains(clazz)) { 
-			throw new IllegalArgumentException("Loop detected in class creation.");
-		}
-		// TODO improve this
-		history.add(clazz);
-		if (clazz.isInterface()) {
-			if (clazz==List.class||clazz==Collection.class) { return (T)new ArrayList(); }
-			if (clazz==Set.class) { return (T)new HashSet(); }
-			if (clazz==Map.class) { return (T)new HashMap(); }
-			return mockInterface(clazz);
-		}
-		if (clazz.isArray()) {
-			return (T)createArray(clazz.getComponentType()); 
-		}
-		if (clazz==boolean.class||clazz==Boolean.class) { return (T)Boolean.valueOf(random.nextInt(2)>0); }
-		if (clazz==int.class||clazz==Integer.class) { return (T)Integer.valueOf(random.nextInt()); }
-		if (clazz==long.class||clazz==Long.class) { return (T)Long.valueOf(random.nextLong()); }
-		if (clazz==short.class||clazz==Short.class) { return (T)Short.valueOf((short)random.nextInt(Short.MAX_VALUE)); }
-		if (clazz==char.class||clazz==Character.class) { return (T)Character.valueOf((char)random.nextInt(Character.MAX_VALUE)); }
-		if (clazz==byte.class||clazz==Byte.class) { return (T)Byte.valueOf((byte)random.nextInt(Byte.MAX_VALUE)); }
-		if (clazz==float.class||clazz==Float.class) { return (T)Float.valueOf(random.nextFloat()); }
-		if (clazz==double.class||clazz==Double.class) { return (T)Double.valueOf(random.nextDouble()); }
-		if (clazz==String.class) {
-			char[] data=new char[random.nextInt(256)];
-			for (int i=0;i<data.length;i++) {
-				data[i]=(char)(random.nextInt(CHAR_RANGE)+MIN_CHAR);
-			}
-			return (T)new String(data);
-		}
-		if (clazz==StackTraceElement.class) { return (T)new StackTraceElement(clazz.getName(),"equals",clazz.getSimpleName()+".java",0); }
-		if (Enum.class.isAssignableFrom(clazz)) {
-			Set<T> set=EnumSet.allOf((Class<Enum>)clazz);
-			int idx=random.nextInt(set.size());
-			Iterator<T> it=set.iterator();
-			for (int i=0;i<idx;i++) {
-				it.next();
-			}
-			return it.next();
+		if (!history.add(clazz)) { 
+			throw new IllegalArgumentException("Loop detected in class creation of "+clazz.getName()+".");
 		}
-		// try nullary constructor
-		try { 
-			return clazz.getConstructor().newInstance();
+		try {
+			if (generators!=null) {
+				Generator<?> generator=generators.get(clazz);
+				if (generator!=null) { return (T)generator.generate(random); }
+			}
+			return (T)FACTORIES.get(clazz).create(this,clazz);
+		} finally {
+			history.remove(clazz);
 		}
-		catch (Exception e) {
+	}
+	/**
+	 * Create a collection holding a random number of created elements.
+	 * @param clazz The class of the collection.
+	 * @param elementType The type of the elements.
+	 * @return The collection, left empty if it does not accept elements.
+	 */
+	protected<T> T create(Class<T> clazz, Class<?> elementType) {
+		T container=create(clazz);
+		fill(container,elementType,null);
+		return container;
+	}
+	/**
+	 * Create a map holding a random number of created entries.
+	 * @param clazz The class of the map.
+	 * @param keyType The type of the keys.
+	 * @param valueType The type of the values.
+	 * @return The map, left empty if it does not accept entries.
+	 */
+	protected<T> T create(Class<T> clazz, Class<?> keyType, Class<?> valueType) {
+		T container=create(clazz);
+		fill(container,keyType,valueType);
+		return container;
+	}
+	/**
+	 * Add created elements to a created collection or map, unless it is unmodifiable.
+	 * @param container The collection or map.
+	 * @param elementType The type of the elements, or of the keys of a map.
+	 * @param valueType The type of the values of a map, or null.
+	 */
+	private void fill(Object container, Class<?> elementType, Class<?> valueType) {
+		try { addElements(container,elementType,valueType); }
+		catch (UnsupportedOperationException e) {
+			// an unmodifiable collection or map, e.g. one created through valueOf
 		}
-		for (Method m : clazz.getMethods()) {
-			if (Modifier.isStatic(m.getModifiers())&&Modifier.isPublic(m.getModifiers())&&"valueOf".equals(m.getName())&&m.getParameterTypes().length==1) {
-				try { return (T)m.invoke(null, create(m.getParameterTypes()[0])); }
-				catch (Exception e) {
-					e.printStackTrace(System.err);
+	}
+	/**
+	 * Register a generator for the tests of this instance, replacing any built-in or service generator of its type.
+	 * Typically called from the constructor or a @Before method of the base class.
+	 * @param generator The generator.
+	 */
+	protected<T> void register(Generator<T> generator) {
+		if (generators==null) { generators=new HashMap<Class<?>,Generator<?>>(); }
+		generators.put(generator.getType(),generator);
+	}
+	/**
+	 * @param clazz The exact class of the values.
+	 * @return The registered generator of a class, else its built-in or service generator, else null.
+	 */
+	private Generator<?> generator(Class<?> clazz) {
+		Generator<?> generator=generators!=null?generators.get(clazz):null;
+		return generator!=null?generator:Generators.BY_TYPE.get(clazz);
+	}
+	/**
+	 * Returns the depth to which created beans are populated.  At depth 0 beans are only constructed.  At depth 1
+	 * the properties of a created bean are set to created values, and collections and maps are given elements
+	 * of their generic types, and so on.  Defaults to the tortilla.depth system property, else 0.
+	 * @return The depth.
+	 */
+	protected int getDepth() {
+		String property=System.getProperty(DEPTH_PROPERTY);
+		return property!=null&&property.trim().length()>0?Integer.parseInt(property.trim()):0;
+	}
+	/**
+	 * Populate a created bean down to the configured depth.  Properties of the class of a bean being built around
+	 * it, such as the parent of a tree node, are left null, and collections and maps of them empty, so that created
+	 * beans never refer back to themselves.  Properties that cannot be created or set are left at their defaults,
+	 * and reported once.
+	 * @param instance The bean.
+	 * @param clazz The class of the bean.
+	 */
+	private void populate(Object instance, Class<?> clazz) {
+		if (graph.depth<0) { graph.depth=getDepth(); }
+		Setter[] setters;
+		if (graph.level>=graph.depth||(setters=SETTERS.get(clazz)).length==0) { return; }
+		Set<Class<?>> history=graph.history;
+		graph.level++;
+		try {
+			for (Setter setter : setters) {
+				if (history.contains(setter.type)||setter.type.isArray()&&history.contains(setter.type.getComponentType())) {
+					continue;
+				}
+				try {
+					Object value=create(history,setter.type);
+					if (setter.elementType!=null&&!history.contains(setter.elementType)&&!history.contains(setter.valueType)) {
+						addElements(value,setter.elementType,setter.valueType);
+					}
+					setter.handle.invokeExact(instance,value);
+				}
+				catch (Error e) { throw e; }
+				catch (Throwable e) {
+					setter.unset(clazz,e);
 				}
 			}
+		} finally {
+			graph.level--;
 		}
-		// At some point it might make sense to try to use the non-nullary constructors,
-		// but let's start simple.
-		throw new IllegalArgumentException("I can't create a "+clazz);
 	}
 	/**
-	 * Create an array of a type, using a random length, loaded with objects instantiated using create.
-	 * @param clazz The class to create an array of.
+	 * Add a random number of created elements to a created collection or map.
+	 * @param container The collection or map.
+	 * @param elementType The type of the elements, or of the keys of a map.
+	 * @param valueType The type of the values of a map, or null.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void addElements(Object container, Class<?> elementType, Class<?> valueType) {
+		int size=random.nextInt(MAX_ELEMENTS);
+		for (int i=0;i<size;i++) {
+			if (container instanceof Collection) {
+				((Collection)container).add(create(elementType));
+			} else if (container instanceof Map) {
+				((Map)container).put(create(elementType),create(valueType));
+			}
+		}
+	}
+	/**
+	 * @return A random boolean, without boxing it, or the value of the generator of boolean.class, if any.
+	 */
+	protected boolean createBoolean() {
+		Generator<?> generator=generator(boolean.class);
+		return generator==null?random.nextInt(2)>0:(Boolean)generator.generate(random);
+	}
+	/**
+	 * @return A random int, without boxing it, or the value of the generator of int.class, if any.
+	 */
+	protected int createInt() {
+		Generator<?> generator=generator(int.class);
+		return generator==null?random.nextInt():(Integer)generator.generate(random);
+	}
+	/**
+	 * @return A random long, without boxing it, or the value of the generator of long.class, if any.
+	 */
+	protected long createLong() {
+		Generator<?> generator=generator(long.class);
+		return generator==null?random.nextLong():(Long)generator.generate(random);
+	}
+	/**
+	 * @return A random non-negative short, without boxing it, or the value of the generator of short.class, if any.
+	 */
+	protected short createShort() {
+		Generator<?> generator=generator(short.class);
+		return generator==null?(short)random.nextInt(Short.MAX_VALUE):(Short)generator.generate(random);
+	}
+	/**
+	 * @return A random char, without boxing it, or the value of the generator of char.class, if any.
+	 */
+	protected char createChar() {
+		Generator<?> generator=generator(char.class);
+		return generator==null?(char)random.nextInt(Character.MAX_VALUE):(Character)generator.generate(random);
+	}
+	/**
+	 * @return A random non-negative byte, without boxing it, or the value of the generator of byte.class, if any.
+	 */
+	protected byte createByte() {
+		Generator<?> generator=generator(byte.class);
+		return generator==null?(byte)random.nextInt(Byte.MAX_VALUE):(Byte)generator.generate(random);
+	}
+	/**
+	 * @return A random float between 0 and 1, without boxing it, or the value of the generator of float.class, if any.
+	 */
+	protected float createFloat() {
+		Generator<?> generator=generator(float.class);
+		return generator==null?random.nextFloat():(Float)generator.generate(random);
+	}
+	/**
+	 * @return A random double between 0 and 1, without boxing it, or the value of the generator of double.class, if any.
+	 */
+	protected double createDouble() {
+		Generator<?> generator=generator(double.class);
+		return generator==null?random.nextDouble():(Double)generator.generate(random);
+	}
+	/**
+	 * Create an array of a type, using a random length, loaded with objects instantiated using create.  Arrays of
+	 * primitives are created by createIntArray() and the like.
+	 * @param clazz The class to create an array of, which must not be primitive.
 	 * @return The array instance.
 	 */
 	@SuppressWarnings("unchecked")
 	protected<T> T[] createArray(Class<T> clazz) { 
-		int size=random.nextInt(16);
-		Object ret=Array.newInstance(clazz, size);
-		for (int i=0;i<size;i++) {
-			Array.set(ret, i, create(clazz));			
+		T[] ret=(T[])Array.newInstance(clazz, random.nextInt(MAX_ARRAY_LENGTH));
+		for (int i=0;i<ret.length;i++) {
+			ret[i]=create(clazz);
+		}
+		return ret;
+	}
+	/**
+	 * @return A boolean array of a random length, loaded with values of createBoolean().
+	 */
+	protected boolean[] createBooleanArray() {
+		boolean[] ret=new boolean[random.nextInt(MAX_ARRAY_LENGTH)];
+		for (int i=0;i<ret.length;i++) {
+			ret[i]=createBoolean();
+		}
+		return ret;
+	}
+	/**
+	 * @return A byte array of a random length, loaded with random bytes filled in one call, or with values of
+	 * createByte() when a generator of byte.class is registered.
+	 */
+	protected byte[] createByteArray() {
+		byte[] ret=new byte[random.nextInt(MAX_ARRAY_LENGTH)];
+		if (generator(byte.class)==null) {
+			random.nextBytes(ret);
+		} else {
+			for (int i=0;i<ret.length;i++) {
+				ret[i]=createByte();
+			}
+		}
+		return ret;
+	}
+	/**
+	 * @return A char array of a random length, loaded with values of createChar().
+	 */
+	protected char[] createCharArray() {
+		char[] ret=new char[random.nextInt(MAX_ARRAY_LENGTH)];
+		for (int i=0;i<ret.length;i++) {
+			ret[i]=createChar();
+		}
+		return ret;
+	}
+	/**
+	 * @return A short array of a random length, loaded with values of createShort().
+	 */
+	protected short[] createShortArray() {
+		short[] ret=new short[random.nextInt(MAX_ARRAY_LENGTH)];
+		for (int i=0;i<ret.length;i++) {
+			ret[i]=createShort();
+		}
+		return ret;
+	}
+	/**
+	 * @return A int array of a random length, loaded with values of createInt().
+	 */
+	protected int[] createIntArray() {
+		int[] ret=new int[random.nextInt(MAX_ARRAY_LENGTH)];
+		for (int i=0;i<ret.length;i++) {
+			ret[i]=createInt();
+		}
+		return ret;
+	}
+	/**
+	 * @return A long array of a random length, loaded with values of createLong().
+	 */
+	protected long[] createLongArray() {
+		long[] ret=new long[random.nextInt(MAX_ARRAY_LENGTH)];
+		for (int i=0;i<ret.length;i++) {
+			ret[i]=createLong();
+		}
+		return ret;
+	}
+	/**
+	 * @return A float array of a random length, loaded with values of createFloat().
+	 */
+	protected float[] createFloatArray() {
+		float[] ret=new float[random.nextInt(MAX_ARRAY_LENGTH)];
+		for (int i=0;i<ret.length;i++) {
+			ret[i]=createFloat();
+		}
+		return ret;
+	}
+	/**
+	 * @return A double array of a random length, loaded with values of createDouble().
+	 */
+	protected double[] createDoubleArray() {
+		double[] ret=new double[random.nextInt(MAX_ARRAY_LENGTH)];
+		for (int i=0;i<ret.length;i++) {
+			ret[i]=createDouble();
 		}
-		return (T[])ret;
+		return ret;
 	}
 	/**
 	 * JUnit assert to compare arrays.
@@ -129,25 +447,785 @@ public class TortillaBase {
 	 * @param actual
 	 */
 	protected static<T> void assertArrayEquals(String name, T[] expected, T[] actual) {
-		assertEquals(name+" null comparison does not match",expected!=null,actual!=null);
-		if (expected==null) { return; }
-		assertEquals(name+" length does not match",expected.length,actual.length);
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
+		for (int i=0;i<expected.length;i++) {
+			if (expected[i]==null?actual[i]!=null:!expected[i].equals(actual[i])) {
+				assertEquals(name+"["+i+"] values do not match",expected[i],actual[i]);
+			}
+		}
+	}
+	/**
+	 * JUnit assert to compare boolean arrays, without boxing their values.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 */
+	protected static void assertArrayEquals(String name, boolean[] expected, boolean[] actual) {
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
+		for (int i=0;i<expected.length;i++) {
+			if (expected[i]!=actual[i]) { assertEquals(name+"["+i+"] values do not match",expected[i],actual[i]); }
+		}
+	}
+	/**
+	 * JUnit assert to compare byte arrays, without boxing their values.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 */
+	protected static void assertArrayEquals(String name, byte[] expected, byte[] actual) {
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
+		for (int i=0;i<expected.length;i++) {
+			if (expected[i]!=actual[i]) { assertEquals(name+"["+i+"] values do not match",expected[i],actual[i]); }
+		}
+	}
+	/**
+	 * JUnit assert to compare char arrays, without boxing their values.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 */
+	protected static void assertArrayEquals(String name, char[] expected, char[] actual) {
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
+		for (int i=0;i<expected.length;i++) {
+			if (expected[i]!=actual[i]) { assertEquals(name+"["+i+"] values do not match",expected[i],actual[i]); }
+		}
+	}
+	/**
+	 * JUnit assert to compare short arrays, without boxing their values.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 */
+	protected static void assertArrayEquals(String name, short[] expected, short[] actual) {
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
+		for (int i=0;i<expected.length;i++) {
+			if (expected[i]!=actual[i]) { assertEquals(name+"["+i+"] values do not match",expected[i],actual[i]); }
+		}
+	}
+	/**
+	 * JUnit assert to compare int arrays, without boxing their values.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 */
+	protected static void assertArrayEquals(String name, int[] expected, int[] actual) {
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
+		for (int i=0;i<expected.length;i++) {
+			if (expected[i]!=actual[i]) { assertEquals(name+"["+i+"] values do not match",expected[i],actual[i]); }
+		}
+	}
+	/**
+	 * JUnit assert to compare long arrays, without boxing their values.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 */
+	protected static void assertArrayEquals(String name, long[] expected, long[] actual) {
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
+		for (int i=0;i<expected.length;i++) {
+			if (expected[i]!=actual[i]) { assertEquals(name+"["+i+"] values do not match",expected[i],actual[i]); }
+		}
+	}
+	/**
+	 * JUnit assert to compare float arrays, without boxing their values.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 */
+	protected static void assertArrayEquals(String name, float[] expected, float[] actual) {
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
 		for (int i=0;i<expected.length;i++) {
-			assertEquals(name+"["+i+"] values do not match",expected[i],actual[i]);
+			if (Float.compare(expected[i],actual[i])!=0) { assertEquals(name+"["+i+"] values do not match",expected[i],actual[i],0); }
 		}
 	}
 	/**
-	 * No-operation invocation handler for mocked interfaces. 
+	 * JUnit assert to compare double arrays, without boxing their values.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 */
+	protected static void assertArrayEquals(String name, double[] expected, double[] actual) {
+		if (!assertComparable(name,expected,actual,expected!=null?expected.length:0,actual!=null?actual.length:0)) { return; }
+		for (int i=0;i<expected.length;i++) {
+			if (Double.compare(expected[i],actual[i])!=0) { assertEquals(name+"["+i+"] values do not match",expected[i],actual[i],0); }
+		}
+	}
+	/**
+	 * Assert that the hash codes of a class spread over the buckets of a hash table about as well as random hash
+	 * codes would.  Distinct instances are created with their properties populated, and their hash codes are
+	 * placed in a table of the capacity a HashMap holding them would have, using the same spreading of hash codes
+	 * as HashMap.  The spread is the number of occupied buckets divided by the number expected of random hash codes.
+	 * Classes with too few distinct instances to judge pass.
+	 * @param clazz The class to test.
+	 * @param threshold The minimum spread, e.g. 0.8.
+	 */
+	protected void assertHashCodeDistribution(Class<?> clazz, double threshold) {
+		if (graph.depth<0) { graph.depth=getDepth(); }
+		int depth=graph.depth;
+		graph.depth=Math.max(depth,1);
+		Set<Object> distinct=new HashSet<Object>();
+		try {
+			for (int i=0;i<HASH_SAMPLES;i++) {
+				distinct.add(create(clazz));
+			}
+		} finally {
+			graph.depth=depth;
+		}
+		int n=distinct.size();
+		if (n<MIN_HASH_SAMPLES) { return; }
+		int capacity=1;
+		while (capacity<n/HASH_LOAD_FACTOR) { capacity<<=1; }
+		BitSet occupied=new BitSet(capacity);
+		Set<Integer> hashes=new HashSet<Integer>();
+		for (Object instance : distinct) {
+			int h=instance.hashCode();
+			hashes.add(h);
+			occupied.set((h^(h>>>16))&(capacity-1));
+		}
+		double expected=capacity*(1-Math.pow(1-1.0/capacity,n));
+		double spread=occupied.cardinality()/expected;
+		if (spread<threshold) {
+			fail(String.format("Poor hashCode distribution of %s: %d distinct hash codes among %d distinct instances (%.1f%% collisions), "
+					+"occupying %d of %d buckets where %.0f are expected, a spread of %.2f below %.2f",clazz.getName(),hashes.size(),n,
+					100.0*(n-hashes.size())/n,occupied.cardinality(),capacity,expected,spread,threshold));
+		}
+	}
+	/**
+	 * Assert that two arrays are both null or both of the same length.  Messages are only built on failure, so that
+	 * comparing arrays allocates nothing.
+	 * @param name The name of the compared property, used in messages.
+	 * @param expected The expected array.
+	 * @param actual The actual array.
+	 * @param expectedLength The length of the expected array, or 0 if null.
+	 * @param actualLength The length of the actual array, or 0 if null.
+	 * @return true if the elements of the arrays remain to be compared, false if both are null.
+	 */
+	private static boolean assertComparable(String name, Object expected, Object actual, int expectedLength, int actualLength) {
+		if ((expected!=null)!=(actual!=null)) {
+			assertEquals(name+" null comparison does not match",expected!=null,actual!=null);
+		}
+		if (expected==null) { return false; }
+		if (expectedLength!=actualLength) {
+			assertEquals(name+" length does not match",expectedLength,actualLength);
+		}
+		return true;
+	}
+	/**
+	 * @param testClass The test class.
+	 * @return The base seed of the tests of a class.
+	 */
+	private static long baseSeed(Class<?> testClass) {
+		String property=System.getProperty(SEED_PROPERTY);
+		if (property!=null&&property.trim().length()>0) { return Long.parseLong(property.trim()); }
+		Seed seed=testClass.getAnnotation(Seed.class);
+		return seed!=null?seed.value():JVM_SEED;
+	}
+	/**
+	 * @param testClass The test class.
+	 * @param name The name of the test.
+	 * @return The seed of the values of a test, which depends only on the base seed and the name of the test, so that
+	 * it is the same whichever thread or order the test runs in.
+	 */
+	private static long seed(Class<?> testClass, String name) {
+		return baseSeed(testClass)^name.hashCode()*0x9e3779b97f4a7c15L;
+	}
+	/**
+	 * Resolve the factory of a class.
+	 * @param clazz The class to create instances of.
+	 * @return The factory.
+	 */
+	private static Factory factory(Class<?> clazz) {
+		Generator<?> generator=Generators.BY_TYPE.get(clazz);
+		if (generator!=null) { return new GeneratorFactory(generator); }
+		if (clazz==List.class||clazz==Collection.class) { return constant(ArrayList.class); }
+		if (clazz==Set.class) { return constant(HashSet.class); }
+		if (clazz==Map.class) { return constant(HashMap.class); }
+		if (clazz.isInterface()) { return Factory.INTERFACE; }
+		if (clazz==boolean[].class) { return Factory.BOOLEAN_ARRAY; }
+		if (clazz==byte[].class) { return Factory.BYTE_ARRAY; }
+		if (clazz==char[].class) { return Factory.CHAR_ARRAY; }
+		if (clazz==short[].class) { return Factory.SHORT_ARRAY; }
+		if (clazz==int[].class) { return Factory.INT_ARRAY; }
+		if (clazz==long[].class) { return Factory.LONG_ARRAY; }
+		if (clazz==float[].class) { return Factory.FLOAT_ARRAY; }
+		if (clazz==double[].class) { return Factory.DOUBLE_ARRAY; }
+		if (clazz.isArray()) { return Factory.ARRAY; }
+		if (clazz==boolean.class||clazz==Boolean.class) { return Factory.BOOLEAN; }
+		if (clazz==int.class||clazz==Integer.class) { return Factory.INT; }
+		if (clazz==long.class||clazz==Long.class) { return Factory.LONG; }
+		if (clazz==short.class||clazz==Short.class) { return Factory.SHORT; }
+		if (clazz==char.class||clazz==Character.class) { return Factory.CHAR; }
+		if (clazz==byte.class||clazz==Byte.class) { return Factory.BYTE; }
+		if (clazz==float.class||clazz==Float.class) { return Factory.FLOAT; }
+		if (clazz==double.class||clazz==Double.class) { return Factory.DOUBLE; }
+		if (clazz==String.class) { return Factory.STRING; }
+		if (clazz==StackTraceElement.class) { return Factory.STACK_TRACE_ELEMENT; }
+		if (Enum.class.isAssignableFrom(clazz)) {
+			Object[] constants=clazz.getEnumConstants();
+			return constants!=null&&constants.length>0?new EnumFactory(constants):Factory.UNSUPPORTED;
+		}
+		MethodHandle constructor=null;
+		if (!Modifier.isAbstract(clazz.getModifiers())) {
+			try { constructor=MethodHandles.publicLookup().unreflectConstructor(clazz.getConstructor()).asType(OBJECT_FACTORY); }
+			catch (Exception e) {
+			}
+		}
+		List<MethodHandle> valueOf=new ArrayList<MethodHandle>();
+		List<Class<?>> valueOfTypes=new ArrayList<Class<?>>();
+		for (Method m : clazz.getMethods()) {
+			if (Modifier.isStatic(m.getModifiers())&&Modifier.isPublic(m.getModifiers())&&"valueOf".equals(m.getName())&&m.getParameterTypes().length==1) {
+				try {
+					valueOf.add(MethodHandles.publicLookup().unreflect(m).asType(OBJECT_FUNCTION));
+					valueOfTypes.add(m.getParameterTypes()[0]);
+				}
+				catch (Exception e) {
+					e.printStackTrace(System.err);
+				}
+			}
+		}
+		// At some point it might make sense to try to use the non-nullary constructors,
+		// but let's start simple.
+		if (constructor==null&&valueOf.isEmpty()) { return Factory.UNSUPPORTED; }
+		return new ConstructorFactory(constructor,valueOf.toArray(new MethodHandle[valueOf.size()]),valueOfTypes.toArray(new Class<?>[valueOfTypes.size()]));
+	}
+	/**
+	 * @param clazz A class with a public nullary constructor.
+	 * @return A factory calling the constructor.
+	 */
+	private static Factory constant(Class<?> clazz) {
+		try { return new ConstructorFactory(MethodHandles.publicLookup().unreflectConstructor(clazz.getConstructor()).asType(OBJECT_FACTORY),new MethodHandle[0],new Class<?>[0]); }
+		catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	/**
+	 * The base seed of the tests of a class, unless overridden by the tortilla.seed system property.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	@Inherited
+	public @interface Seed {
+		long value();
+	}
+	/**
+	 * A Random drawing from a {@link SplittableRandom}, which unlike Random has no shared state to contend on.  Each
+	 * test has its own instance, which is only used by the thread running the test.
+	 */
+	private static class SeededRandom extends Random {
+		private static final long serialVersionUID=1L;
+		private SplittableRandom source;
+
+		SeededRandom(long seed) {
+			source=new SplittableRandom(seed);
+		}
+		void reseed(long seed) {
+			source=new SplittableRandom(seed);
+		}
+		@Override
+		public synchronized void setSeed(long seed) {
+			// called by the constructor of Random, before the source exists
+			if (source!=null) { reseed(seed); }
+		}
+		@Override
+		protected int next(int bits) {
+			return (int)(source.nextLong()>>>(64-bits));
+		}
+		@Override
+		public int nextInt() {
+			return source.nextInt();
+		}
+		@Override
+		public int nextInt(int bound) {
+			return source.nextInt(bound);
+		}
+		@Override
+		public long nextLong() {
+			return source.nextLong();
+		}
+		@Override
+		public boolean nextBoolean() {
+			return source.nextBoolean();
+		}
+		@Override
+		public double nextDouble() {
+			return source.nextDouble();
+		}
+	}
+	/**
+	 * Generates values of one type for {@link TortillaBase#create(Class)}, taking precedence over the built-in
+	 * values of the type.  Generators are either registered by a base class through
+	 * {@link TortillaBase#register(Generator)}, or listed in META-INF/services/net.elementj.tortilla.TortillaBase$Generator
+	 * to apply to all tests.  A generator of a primitive class, e.g. a Generator&lt;Integer&gt; of int.class, also
+	 * supplies createInt() and the like, and with them the elements of primitive arrays.
+	 * @param <T> The type of the generated values.
+	 */
+	public interface Generator<T> {
+		/**
+		 * @return The type of the generated values, which is the exact class they are created for.
+		 */
+		Class<T> getType();
+		/**
+		 * Generate a value.
+		 * @param random The random number generator of the test.
+		 * @return The value.
+		 */
+		T generate(Random random);
+	}
+	/**
+	 * The generators of every test: the built-in generators, replaced by the generators found through the
+	 * {@link ServiceLoader} of the class loader of TortillaBase.
+	 */
+	private static class Generators {
+		static final Map<Class<?>,Generator<?>> BY_TYPE=load();
+
+		private static Map<Class<?>,Generator<?>> load() {
+			Map<Class<?>,Generator<?>> ret=new HashMap<Class<?>,Generator<?>>();
+			Generator<?>[] builtIns={
+				new Generator<UUID>() {
+					public Class<UUID> getType() { return UUID.class; }
+					public UUID generate(Random random) { return new UUID(random.nextLong(),random.nextLong()); }
+				},
+				new Generator<BigInteger>() {
+					public Class<BigInteger> getType() { return BigInteger.class; }
+					public BigInteger generate(Random random) { return new BigInteger(random.nextInt(128),random); }
+				},
+				new Generator<BigDecimal>() {
+					public Class<BigDecimal> getType() { return BigDecimal.class; }
+					public BigDecimal generate(Random random) { return BigDecimal.valueOf(random.nextLong(),random.nextInt(16)); }
+				}
+			};
+			for (Generator<?> generator : builtIns) {
+				ret.put(generator.getType(),generator);
+			}
+			for (Generator<?> generator : ServiceLoader.load(Generator.class,TortillaBase.class.getClassLoader())) {
+				ret.put(generator.getType(),generator);
+			}
+			return ret;
+		}
+	}
+	/**
+	 * Creates values with a generator.
+	 */
+	private static class GeneratorFactory extends Factory {
+		private final Generator<?> generator;
+
+		GeneratorFactory(Generator<?> generator) {
+			this.generator=generator;
+		}
+		@Override
+		Object create(TortillaBase base, Class<?> clazz) {
+			return generator.generate(base.random);
+		}
+	}
+	/**
+	 * Creates instances of one class.  Factories are shared by all tests, so any state they need from a test, such
+	 * as its random number generator, is taken from the test passed to create.
+	 */
+	private static abstract class Factory {
+		static final Factory INTERFACE=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.mockInterface(clazz);
+			}
+		};
+		static final Factory ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createArray(clazz.getComponentType());
+			}
+		};
+		static final Factory BOOLEAN_ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createBooleanArray();
+			}
+		};
+		static final Factory BYTE_ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createByteArray();
+			}
+		};
+		static final Factory CHAR_ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createCharArray();
+			}
+		};
+		static final Factory SHORT_ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createShortArray();
+			}
+		};
+		static final Factory INT_ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createIntArray();
+			}
+		};
+		static final Factory LONG_ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createLongArray();
+			}
+		};
+		static final Factory FLOAT_ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createFloatArray();
+			}
+		};
+		static final Factory DOUBLE_ARRAY=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return base.createDoubleArray();
+			}
+		};
+		static final Factory BOOLEAN=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return Boolean.valueOf(base.createBoolean());
+			}
+		};
+		static final Factory INT=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return Integer.valueOf(base.createInt());
+			}
+		};
+		static final Factory LONG=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return Long.valueOf(base.createLong());
+			}
+		};
+		static final Factory SHORT=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return Short.valueOf(base.createShort());
+			}
+		};
+		static final Factory CHAR=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return Character.valueOf(base.createChar());
+			}
+		};
+		static final Factory BYTE=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return Byte.valueOf(base.createByte());
+			}
+		};
+		static final Factory FLOAT=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return Float.valueOf(base.createFloat());
+			}
+		};
+		static final Factory DOUBLE=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return Double.valueOf(base.createDouble());
+			}
+		};
+		static final Factory STRING=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				char[] data=new char[base.random.nextInt(256)];
+				for (int i=0;i<data.length;i++) {
+					data[i]=(char)(base.random.nextInt(CHAR_RANGE)+MIN_CHAR);
+				}
+				return new String(data);
+			}
+		};
+		static final Factory STACK_TRACE_ELEMENT=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				return new StackTraceElement(clazz.getName(),"equals",clazz.getSimpleName()+".java",0);
+			}
+		};
+		static final Factory UNSUPPORTED=new Factory() {
+			@Override
+			Object create(TortillaBase base, Class<?> clazz) {
+				throw new IllegalArgumentException("I can't create a "+clazz);
+			}
+		};
+
+		/**
+		 * Create an instance.
+		 * @param base The test the instance is created for.
+		 * @param clazz The class to instantiate.
+		 * @return The instance.
+		 */
+		abstract Object create(TortillaBase base, Class<?> clazz);
+	}
+	/**
+	 * The Flight Recorder event for creating a value, net.elementj.tortilla.Create, committed only while a recording
+	 * enables it, so that slow tests can be correlated with garbage collection and class loading.  The event is
+	 * defined through jdk.jfr.EventFactory, found reflectively, so that this class compiles and runs without the
+	 * Flight Recorder API.
+	 */
+	private static final class CreateEvents {
+		private final MethodHandle enabled, newEvent, begin, shouldCommit, set, commit;
+
+		private CreateEvents(MethodHandle enabled, MethodHandle newEvent, MethodHandle begin, MethodHandle shouldCommit,
+				MethodHandle set, MethodHandle commit) {
+			this.enabled=enabled;
+			this.newEvent=newEvent;
+			this.begin=begin;
+			this.shouldCommit=shouldCommit;
+			this.set=set;
+			this.commit=commit;
+		}
+		/**
+		 * Define the event type.
+		 * @return The event type, or null if the JVM does not provide the Flight Recorder API.
+		 */
+		static CreateEvents load() {
+			try {
+				ClassLoader loader=TortillaBase.class.getClassLoader();
+				Class<?> elementClass=Class.forName("jdk.jfr.AnnotationElement",false,loader);
+				Class<?> descriptorClass=Class.forName("jdk.jfr.ValueDescriptor",false,loader);
+				Class<?> eventClass=Class.forName("jdk.jfr.Event",false,loader);
+				Class<?> typeClass=Class.forName("jdk.jfr.EventType",false,loader);
+				Class<?> factoryClass=Class.forName("jdk.jfr.EventFactory",false,loader);
+				Constructor<?> element=elementClass.getConstructor(Class.class,Object.class);
+				Constructor<?> descriptor=descriptorClass.getConstructor(Class.class,String.class,List.class);
+				Class<?> label=Class.forName("jdk.jfr.Label",false,loader);
+				List<Object> annotations=new ArrayList<Object>();
+				annotations.add(element.newInstance(Class.forName("jdk.jfr.Name",false,loader),"net.elementj.tortilla.Create"));
+				annotations.add(element.newInstance(label,"Create Test Value"));
+				annotations.add(element.newInstance(Class.forName("jdk.jfr.Category",false,loader),new String[]{"Tortilla"}));
+				annotations.add(element.newInstance(Class.forName("jdk.jfr.StackTrace",false,loader),Boolean.FALSE));
+				List<Object> fields=new ArrayList<Object>();
+				fields.add(descriptor.newInstance(String.class,"className",Collections.singletonList(element.newInstance(label,"Class Name"))));
+				fields.add(descriptor.newInstance(int.class,"propertyCount",Arrays.asList(element.newInstance(label,"Properties"),
+						element.newInstance(Class.forName("jdk.jfr.Description",false,loader),"The number of properties populated when the value is a bean built to a depth"))));
+				Object factory=factoryClass.getMethod("create",List.class,List.class).invoke(null,annotations,fields);
+				MethodHandles.Lookup lookup=MethodHandles.publicLookup();
+				MethodType action=MethodType.methodType(void.class,Object.class);
+				return new CreateEvents(
+						lookup.findVirtual(typeClass,"isEnabled",MethodType.methodType(boolean.class)).bindTo(factoryClass.getMethod("getEventType").invoke(factory)),
+						lookup.findVirtual(factoryClass,"newEvent",MethodType.methodType(eventClass)).bindTo(factory).asType(MethodType.methodType(Object.class)),
+						lookup.findVirtual(eventClass,"begin",MethodType.methodType(void.class)).asType(action),
+						lookup.findVirtual(eventClass,"shouldCommit",MethodType.methodType(boolean.class)).asType(MethodType.methodType(boolean.class,Object.class)),
+						lookup.findVirtual(eventClass,"set",MethodType.methodType(void.class,int.class,Object.class)).asType(MethodType.methodType(void.class,Object.class,int.class,Object.class)),
+						lookup.findVirtual(eventClass,"commit",MethodType.methodType(void.class)).asType(action));
+			} catch (Exception e) {
+				return null;
+			} catch (LinkageError e) {
+				return null;
+			}
+		}
+		/**
+		 * @return true if a recording enables the event.
+		 */
+		boolean isEnabled() {
+			try { return (boolean)enabled.invokeExact(); }
+			catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+		/**
+		 * @return A new event, started.
+		 */
+		Object begin() {
+			try {
+				Object event=newEvent.invokeExact();
+				begin.invokeExact(event);
+				return event;
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+		/**
+		 * Commit an event, if its duration exceeds the threshold of the recording.
+		 * @param event The event.
+		 * @param className The name of the class created.
+		 * @param propertyCount The number of properties populated.
+		 */
+		void commit(Object event, String className, int propertyCount) {
+			try {
+				if ((boolean)shouldCommit.invokeExact(event)) {
+					set.invokeExact(event,0,(Object)className);
+					set.invokeExact(event,1,(Object)Integer.valueOf(propertyCount));
+					commit.invokeExact(event);
+				}
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+		/**
+		 * @param e A failure of the Flight Recorder API.
+		 * @return An unchecked exception to throw.
+		 */
+		private static RuntimeException rethrow(Throwable e) {
+			if (e instanceof Error) { throw (Error)e; }
+			if (e instanceof RuntimeException) { return (RuntimeException)e; }
+			return new IllegalStateException("Flight Recorder failed",e);
+		}
+	}
+	/**
+	 * The state of building one value, kept by each test and reused for every value it creates.
+	 */
+	private static class Graph {
+		final Set<Class<?>> history=new HashSet<Class<?>>();
+		int level;
+		int depth=-1;
+	}
+	/**
+	 * A public setter of a bean, populated when beans are built to a depth.
+	 */
+	private static class Setter {
+		final String name;
+		final MethodHandle handle;
+		final Class<?> type;
+		final Class<?> elementType;
+		final Class<?> valueType;
+		private volatile boolean reported;
+
+		Setter(String name, MethodHandle handle, Class<?> type, Class<?> elementType, Class<?> valueType) {
+			this.name=name;
+			this.handle=handle;
+			this.type=type;
+			this.elementType=elementType;
+			this.valueType=valueType;
+		}
+		/**
+		 * Report that a property was left at its default, the first time it is.
+		 * @param clazz The class of the bean.
+		 * @param e The failure to create or set the value of the property.
+		 */
+		void unset(Class<?> clazz, Throwable e) {
+			if (reported) { return; }
+			reported=true;
+			System.err.println("Leaving "+clazz.getName()+"."+name+" unset: "+e);
+		}
+	}
+	/**
+	 * Resolve the public setters of a class, taking the element types of collections and maps from their type
+	 * arguments when they are classes.  Classes of the JDK are values rather than beans, and have no setters.
+	 * @param clazz The class.
+	 * @return The setters.
+	 */
+	private static Setter[] setters(Class<?> clazz) {
+		List<Setter> ret=new ArrayList<Setter>();
+		if (clazz.getName().startsWith("java.")||clazz.getName().startsWith("javax.")) { return new Setter[0]; }
+		Method[] methods;
+		try { methods=clazz.getMethods(); }
+		catch (LinkageError e) {
+			// a method refers to a class missing from the classpath, leave the bean unpopulated
+			return new Setter[0];
+		}
+		for (Method m : methods) {
+			if (Modifier.isStatic(m.getModifiers())||m.getParameterTypes().length!=1||m.getReturnType()!=void.class
+					||!m.getName().startsWith("set")||m.getName().length()==3) {
+				continue;
+			}
+			Class<?> type=m.getParameterTypes()[0];
+			Class<?> elementType=null, valueType=null;
+			if (m.getGenericParameterTypes()[0] instanceof ParameterizedType) {
+				Type[] arguments=((ParameterizedType)m.getGenericParameterTypes()[0]).getActualTypeArguments();
+				if (Collection.class.isAssignableFrom(type)&&arguments.length==1&&arguments[0] instanceof Class) {
+					elementType=(Class<?>)arguments[0];
+				} else if (Map.class.isAssignableFrom(type)&&arguments.length==2&&arguments[0] instanceof Class&&arguments[1] instanceof Class) {
+					elementType=(Class<?>)arguments[0];
+					valueType=(Class<?>)arguments[1];
+				}
+			}
+			try {
+				MethodHandle handle=MethodHandles.publicLookup().unreflect(m).asType(MethodType.methodType(void.class,Object.class,Object.class));
+				ret.add(new Setter(m.getName(),handle,type,elementType,valueType));
+			} catch (IllegalAccessException e) {
+			}
+		}
+		return ret.toArray(new Setter[ret.size()]);
+	}
+	/**
+	 * Picks a random constant of an enum.
+	 */
+	private static class EnumFactory extends Factory {
+		private final Object[] constants;
+
+		EnumFactory(Object[] constants) {
+			this.constants=constants;
+		}
+		@Override
+		Object create(TortillaBase base, Class<?> clazz) {
+			return constants[base.random.nextInt(constants.length)];
+		}
+	}
+	/**
+	 * Calls the public nullary constructor of a class, falling back to its public static valueOf methods, each
+	 * given an argument created for its parameter type, if there is no constructor or it fails.
+	 */
+	private static class ConstructorFactory extends Factory {
+		private final MethodHandle constructor;
+		private final MethodHandle[] valueOf;
+		private final Class<?>[] valueOfTypes;
+
+		ConstructorFactory(MethodHandle constructor, MethodHandle[] valueOf, Class<?>[] valueOfTypes) {
+			this.constructor=constructor;
+			this.valueOf=valueOf;
+			this.valueOfTypes=valueOfTypes;
+		}
+		@Override
+		Object create(TortillaBase base, Class<?> clazz) {
+			if (constructor!=null) {
+				Object instance=null;
+				try { instance=constructor.invokeExact(); }
+				catch (Error e) { throw e; }
+				catch (Throwable e) {
+				}
+				if (instance!=null) {
+					base.populate(instance,clazz);
+					return instance;
+				}
+			}
+			if (valueOf.length==0) { throw new IllegalArgumentException("I can't create a "+clazz); }
+			for (int i=0;i<valueOf.length;i++) {
+				try { return valueOf[i].invokeExact(base.create(valueOfTypes[i])); }
+				catch (Error e) { throw e; }
+				catch (Throwable e) {
+					e.printStackTrace(System.err);
+				}
+			}
+			throw new IllegalArgumentException("I can't create a "+clazz);
+		}
+	}
+	/**
+	 * No-operation invocation handler for mocked interfaces.  Mocks are only equal to themselves, and their other
+	 * methods return the default value of their return type, e.g. 0 or false for primitives and null for objects.
 	 */
 	public static class NOOPInvocationHandler implements InvocationHandler {
 		private static final NOOPInvocationHandler INSTANCE=new NOOPInvocationHandler();
+		private static final Map<Class<?>,Object> DEFAULTS=new HashMap<Class<?>,Object>();
+		static {
+			DEFAULTS.put(boolean.class,Boolean.FALSE);
+			DEFAULTS.put(byte.class,Byte.valueOf((byte)0));
+			DEFAULTS.put(char.class,Character.valueOf((char)0));
+			DEFAULTS.put(short.class,Short.valueOf((short)0));
+			DEFAULTS.put(int.class,Integer.valueOf(0));
+			DEFAULTS.put(long.class,Long.valueOf(0));
+			DEFAULTS.put(float.class,Float.valueOf(0));
+			DEFAULTS.put(double.class,Double.valueOf(0));
+		}
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			if (method.getName().equals("equals")) {
-				return proxy==args[0];
-			} else if (method.getName().equals("hashCode")) {
-				return this.hashCode();
+			// the proxy passes the methods of Object declared by Object, so only those need to be told apart by name
+			if (method.getDeclaringClass()==Object.class) {
+				String name=method.getName();
+				if (name.equals("equals")) {
+					return proxy==args[0];
+				} else if (name.equals("hashCode")) {
+					return this.hashCode();
+				} else if (name.equals("toString")) {
+					return "Mock of "+proxy.getClass().getInterfaces()[0].getName();
+				}
 			}
-			return null;
+			Class<?> type=method.getReturnType();
+			return type.isPrimitive()?DEFAULTS.get(type):null;
 		}
 	}
 }
@@ -0,0 +1,74 @@
+package net.elementj.tortilla;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events of the plugin, so that slow scans, introspection and generation can be correlated with
+ * garbage collection and class loading in a recording of the build.  Events are only created when the JVM provides
+ * Flight Recorder, and are committed only while a recording enables them, which costs a field check otherwise.
+ * The classes of the events are not loaded unless {@link #AVAILABLE} is true.
+ */
+final class TortillaEvents {
+	/**
+	 * true if the JVM provides the Flight Recorder API.
+	 */
+	static final boolean AVAILABLE=available();
+
+	private TortillaEvents() { }
+	private static boolean available() {
+		try {
+			Class.forName("jdk.jfr.Event",false,TortillaEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+	/**
+	 * Scanning a directory for beans.
+	 */
+	@Name("net.elementj.tortilla.Scan")
+	@Label("Scan for Beans")
+	@Category({"Tortilla"})
+	@StackTrace(false)
+	static final class Scan extends Event {
+		@Label("Directory")
+		String directory;
+		@Label("Classes")
+		@Description("The number of classes accepted for testing")
+		int classCount;
+	}
+	/**
+	 * Generating the test case of a bean.
+	 */
+	@Name("net.elementj.tortilla.Generate")
+	@Label("Generate Test Case")
+	@Category({"Tortilla"})
+	@StackTrace(false)
+	static final class Generate extends Event {
+		@Label("Class Name")
+		String className;
+		@Label("Properties")
+		@Description("The number of properties tested, or -1 if the test case was unchanged or not generated")
+		int propertyCount;
+	}
+	/**
+	 * Resolving the return type of a method in a class.
+	 */
+	@Name("net.elementj.tortilla.ReturnType")
+	@Label("Resolve Return Type")
+	@Category({"Tortilla"})
+	@StackTrace(false)
+	static final class ReturnType extends Event {
+		@Label("Class Name")
+		String className;
+		@Label("Method")
+		String method;
+	}
+}
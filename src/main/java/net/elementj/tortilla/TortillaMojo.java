@@ -3,28 +3,39 @@ package net.elementj.tortilla;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
@@ -34,6 +45,13 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
 /**
  * Goal which generates unit tests for Java Beans.
  * @requiresDependencyResolution
@@ -42,9 +60,15 @@ import org.apache.maven.project.MavenProject;
 public class TortillaMojo
     extends AbstractMojo
 {
-    private static final String[] IMPORTS={"org.junit.Test","org.junit.Before","nl.jqno.equalsverifier.EqualsVerifier","static org.junit.Assert.*"};
-    private static final int MAX_PARENT=30;
 	private static final String DEFAULT_BASE="net.elementj.tortilla.TortillaBase";
+	private static final String SUITE_PREFIX="TortillaBeans", SUITE_SUFFIX="Test";
+	private static final String RUNTIME_TEST="net.elementj.tortilla.TortillaRuntimeTest";
+	/**
+	 * The plugin classes, with their member classes, that decide the content of generated test cases, so that an
+	 * upgrade of the plugin that changes any of them regenerates every test case.
+	 */
+	private static final Class<?>[] GENERATOR_CLASSES={TortillaMojo.class,TortillaReflection.class,TestCaseRenderer.class,
+		SourceTemplate.class,BeanModel.class,PropertyModel.class,PropertyMatcher.class};
     /**
      * Location of the file.
      */
@@ -52,6 +76,8 @@ public class TortillaMojo
     private File outputDirectory;
     @Parameter( defaultValue = "${project.build.directory}/classes", property = "sourceDir", required = true )
     private File sourceDirectory;
+    @Parameter( defaultValue = "${project.build.sourceEncoding}", property = "encoding", required = false )
+    private String encoding;
     @Parameter( defaultValue = DEFAULT_BASE, property="baseClass", required=true)
     private String baseClass;
     @Parameter( alias = "includes", required=false)
@@ -60,7 +86,7 @@ public class TortillaMojo
     private String[] excludes;
     @Parameter( alias = "superExcludes", required=false)
     private String[] superExcludes={"java.lang.Exception"};
-    private Class<?>[] superExcludesClasses;
+    private final Set<String> superExcludeNames=new HashSet<String>();
     @Parameter( alias="equalsVerifierEnabled", required=true, defaultValue="true")
     private boolean equalsVerifier;
     @Parameter( alias="equalsVerifierParams", required=true, defaultValue=".suppress(nl.jqno.equalsverifier.Warning.NONFINAL_FIELDS,nl.jqno.equalsverifier.Warning.STRICT_INHERITANCE)")
@@ -69,35 +95,154 @@ public class TortillaMojo
     private String[] equalsVerifierExcludes;
     @Parameter( alias="equalsVerifierIncludes", required=false)
     private String[] equalsVerifierIncludes;
+    @Parameter( alias="hashCodeEnabled", required=true, defaultValue="false")
+    private boolean hashCodeDistribution;
+    @Parameter( alias="hashCodeThreshold", required=true, defaultValue="0.8")
+    private double hashCodeThreshold;
+    @Parameter( alias="hashCodeExcludes", required=false)
+    private String[] hashCodeExcludes;
+    @Parameter( alias="hashCodeIncludes", required=false)
+    private String[] hashCodeIncludes;
     @Parameter( alias="allowNoNullary", required=true, defaultValue="false")
     private boolean allowNoNullary;
+    @Parameter( alias="bytecodeFilter", required=true, defaultValue="true")
+    private boolean bytecodeFilter;
+    @Parameter( alias="scanThreads", required=true, defaultValue="0")
+    private int scanThreads;
+    @Parameter( alias="incremental", required=true, defaultValue="true")
+    private boolean incremental;
+    @Parameter( alias="generationThreads", required=true, defaultValue="0")
+    private int generationThreads;
+    @Parameter( alias="sharedCache", required=true, defaultValue="false")
+    private boolean sharedCache;
+    @Parameter( alias="templateDirectory", required=false)
+    private File templateDirectory;
+    @Parameter( alias="aggregate", required=true, defaultValue="false")
+    private boolean aggregate;
+    @Parameter( alias="aggregateSize", required=true, defaultValue="0")
+    private int aggregateSize;
+    @Parameter( alias="runtime", required=true, defaultValue="false")
+    private boolean runtime;
+    @Parameter( defaultValue = "${project.build.directory}/generated-test-resources/tortilla", property = "indexDir", required = true )
+    private File indexDirectory;
+    @Parameter( property = TortillaBase.SEED_PROPERTY, required = false )
+    private Long seed;
+    @Parameter( alias="benchmarks", required=true, defaultValue="false")
+    private boolean benchmarks;
+    @Parameter( defaultValue = "${project.build.directory}/generated-benchmark-sources/tortilla", property = "benchmarkDir", required = true )
+    private File benchmarkDirectory;
+    @Parameter( defaultValue = "${project.build.directory}/tortilla-manifest", property = "manifestFile", required = true )
+    private File manifestFile;
+    @Parameter( alias="metrics", required=true, defaultValue="true")
+    private boolean metricsReport;
+    @Parameter( defaultValue = "${project.build.directory}/tortilla-metrics.json", property = "metricsFile", required = true )
+    private File metricsFile;
     @Component
     private MavenProject project;
+    @Parameter( defaultValue="${session}", readonly=true)
+    private MavenSession session;
     private ClassLoader loader;
+    private SupertypeIndex supertypes;
+    private ReactorCache reactorCache;
+    private ReactorCache.Classpath sharedClasspath;
+    private final Map<String,HashCode> bytecodeHashes=new ConcurrentHashMap<String,HashCode>();
+    private String configFingerprint;
+    private WildcardMatcher excludesMatcher, includesMatcher, equalsVerifierExcludesMatcher, equalsVerifierIncludesMatcher;
+    private WildcardMatcher hashCodeExcludesMatcher, hashCodeIncludesMatcher;
+    private PropertyMatcher propertyExcludes;
+    private TestCaseRenderer renderer;
+    private SourceFileWriter files;
+    private Charset charset;
+    private GenerationMetrics metrics;
     /**
      * Scan for beans to generate test cases for.
      * @param classes A set to load found classes into.
      * @param path The path to scan for classes.
+     * @throws IOException If a directory cannot be read.
      */
-    private void scanForBeans(Set<Class<?>> classes, File path) {
-    	getLog().debug("scanForBeans("+classes+","+path+");");
-    	String[] files=path.list();
-    	for (String filename : files) {
-    		File f=new File(path,filename);
-    		if (f.isDirectory()) { scanForBeans(classes,f); }
-    		else if (ClassesOnlyFilter.INSTANCE.accept(path, filename)) {
-    			String className=determineClassName(path, filename);
+    private void scanForBeans(Set<Class<?>> classes, File path) throws IOException {
+    	if (getLog().isDebugEnabled()) { getLog().debug("scanForBeans("+path+");"); }
+    	TortillaEvents.Scan event=TortillaEvents.AVAILABLE?new TortillaEvents.Scan():null;
+    	if (event!=null) { event.begin(); }
+    	int before=classes.size();
+    	ClassFileScanner scanner=new ClassFileScanner(path.toPath(),scanThreads,new ClassFileScanner.Filter() {
+			public boolean accept(Path file, String className) {
+				metrics.count(GenerationMetrics.Count.SEEN);
+				if (!bytecodeFilter) { return true; }
+				GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.FILTER);
+				try { return preFilter(file,className); }
+				finally { timer.stop(); }
+			}
+		});
+    	GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.SCAN);
+    	Collection<String> classNames;
+    	try { classNames=scanner.scan(); }
+    	finally { timer.stop(); }
+    	timer=metrics.start(GenerationMetrics.Phase.LOAD);
+    	try {
+	    	for (String className : classNames) {
 				try {
-					getLog().debug("Attempting to load "+className);
+					if (getLog().isDebugEnabled()) { getLog().debug("Attempting to load "+className); }
 					Class<?> clazz=Class.forName(className,false,loader);
-					if (accepted(excludes,superExcludesClasses,includes,clazz)) { 
+					metrics.count(GenerationMetrics.Count.LOADED);
+					if (accepted(excludesMatcher,superExcludeNames,includesMatcher,clazz)) { 
 						classes.add(clazz); 
 					}
 				} catch (ClassNotFoundException e) {					
 					getLog().error("Couldn't load "+className, e);
 				}
-    		}
+	    	}
+    	} finally {
+    		timer.stop();
+    	}
+    	metrics.count(GenerationMetrics.Count.ACCEPTED,classes.size()-before);
+    	if (event!=null&&event.shouldCommit()) {
+    		event.directory=path.getPath();
+    		event.classCount=classes.size()-before;
+    		event.commit();
+    	}
+    }
+    /**
+     * Determine from the class file alone whether a class could be accepted for testing.  This is conservative;
+     * classes that pass are still loaded and evaluated by {@link #accepted(WildcardMatcher, Set, WildcardMatcher, Class)}
+     * and {@link #introspect(Class)}.
+     * @param file The class file.
+     * @param className The name of the class.
+     * @return false if the class certainly will not be tested, otherwise true
+     */
+    private boolean preFilter(Path file, String className) {
+    	ClassFileInfo info;
+    	try {
+    		InputStream is=new BufferedInputStream(Files.newInputStream(file));
+    		try { info=ClassFileInfo.parse(is); }
+    		finally { is.close(); }
+    	} catch (IOException e) {
+    		if (getLog().isDebugEnabled()) { getLog().debug("Unable to read class file "+file+", it will be loaded instead: "+e); }
+    		return true;
     	}
+    	supertypes.add(info);
+    	if (info.isInterface()||info.isAbstract()||info.isEnum()||!info.isPublic()) { return false; }
+    	if (!allowNoNullary&&!info.hasPublicNullaryConstructor()) { return false; }
+    	if (!accepted(excludesMatcher,includesMatcher,className)) { return false; }
+    	SupertypeIndex.Closure closure=supertypes.getClosure(className);
+    	if (closure==null) { return true; }
+    	if (!Collections.disjoint(closure.getNames(),superExcludeNames)) { return false; }
+    	if (closure.isComplete()&&!closure.hasAccessorPair()&&!testedAsWhole(className)) {
+    		if (getLog().isDebugEnabled()) { getLog().debug("Skipping "+className+" as it has no read/write properties."); }
+    		return false;
+    	}
+    	return true;
+    }
+    /**
+     * Determine if any enabled generator tests a class as a whole rather than property by property: the equals
+     * contract, the hashCode distribution or a benchmark.  Such classes are kept even if they have no read/write
+     * properties.
+     * @param className The name of the class.
+     * @return true if the class is tested as a whole.
+     */
+    private boolean testedAsWhole(String className) {
+    	return benchmarks||(equalsVerifier&&accepted(equalsVerifierExcludesMatcher,equalsVerifierIncludesMatcher,className))
+    			||(hashCodeDistribution&&accepted(hashCodeExcludesMatcher,hashCodeIncludesMatcher,className));
     }
     /**
      * Determine if a bean property is acceptable for testing according to exclusion rules
@@ -106,89 +251,73 @@ public class TortillaMojo
      * @return true if the property is acceptable for testing, otherwise false
      */
     private boolean accepted(PropertyDescriptor pd) {
-    	if (pd.getReadMethod()==null||pd.getWriteMethod()==null) { return false; }
-    	String className=pd.getReadMethod().getDeclaringClass().getName(), propertyName=pd.getName();
-    	if (excludes!=null) {
-    		for (String exclude : excludes) {
-    			int idx=exclude.lastIndexOf('.');
-    			if (idx<0) {
-    				getLog().warn("Excluded method "+exclude+" is invalid.  Expected format: is package.name.BeanClassName or package.name.BeanClassName.propertyName");
-    				continue;
-    			}
-    			String excludeClass=exclude.substring(0, idx);
-    			String excludeProperty=exclude.substring(idx+1);
-    			if (FilenameUtils.wildcardMatch(className, excludeClass, IOCase.SENSITIVE)&&
-    				FilenameUtils.wildcardMatch(propertyName, excludeProperty, IOCase.SENSITIVE)) { return false; }
+    	if (pd.getReadMethod()==null||pd.getWriteMethod()==null) {
+    		metrics.skipProperty(pd.getReadMethod()!=null?"readOnly":pd.getWriteMethod()!=null?"writeOnly":"noAccessors");
+    		return false;
+    	}
+    	String rule=propertyExcludes.match(pd.getReadMethod().getDeclaringClass().getName(),pd.getName());
+    	if (rule!=null) {
+    		metrics.skipProperty("excluded");
+    		if (getLog().isDebugEnabled()) {
+    			getLog().debug("Property "+pd.getReadMethod().getDeclaringClass().getName()+"."+pd.getName()+" excluded by "+rule);
     		}
+    		return false;
     	}
     	return true;
     }
     /**
      * Determine if a java bean is acceptable for testing.
      * @param excludes Class/package specifications to exclude.
-     * @param superExcludesClasses An array of classes whose subclasses should be excluded from test case generation. 
-     * @param includes Class/package specifications to explicitly include.
+     * @param superExcludes The names of classes whose subclasses should be excluded from test case generation, or null.
+     * @param includes Class/package specifications to explicitly include, or null to include everything.
      * @param clazz The class to evaluate for acceptance.
      * @return true if the class should be included, otherwise false
      */
-    private static boolean accepted(String[] excludes, Class<?>[] superExcludesClasses, String[] includes, Class<?> clazz) {
-    	final String name=clazz.getName();
-    	if (excludes!=null) {
-    		for (String exclude : excludes) {
-    			if (FilenameUtils.wildcardMatch(name, exclude, IOCase.SENSITIVE)) {
-    				return false;
-    			}
-    		}
-    	}    	
-    	if (superExcludesClasses!=null) {
-    		for (Class<?> exclude : superExcludesClasses) {
-    			if (exclude.isAssignableFrom(clazz)) { return false; }
-    		}
+    private boolean accepted(WildcardMatcher excludes, Set<String> superExcludes, WildcardMatcher includes, Class<?> clazz) {
+    	if (superExcludes!=null&&!superExcludes.isEmpty()) {
+    		SupertypeIndex.Closure closure=supertypes.getClosure(clazz.getName());
+    		Set<String> names=closure!=null&&closure.isComplete()?closure.getNames():SupertypeIndex.names(clazz);
+    		if (!Collections.disjoint(names,superExcludes)) { return false; }
     	}
-    	if (includes!=null) {
-    		for (String include : includes) {
-    			if (FilenameUtils.wildcardMatch(name, include, IOCase.SENSITIVE)) {
-    				return true;
-    			}
-    		}
-    		return false;
-    	} 
-    	
-		return true;
+    	return accepted(excludes,includes,clazz.getName());
     }
     /**
-     * Determine the name of a class.
-     * @param path The directory in which the class file resides.
-     * @param filename The class filename.
-     * @return The full class name.
+     * Determine if a class name is acceptable according to class/package specifications.
+     * @param excludes Class/package specifications to exclude.
+     * @param includes Class/package specifications to explicitly include, or null to include everything.
+     * @param name The class name to evaluate for acceptance.
+     * @return true if the class should be included, otherwise false
      */
-    private String determineClassName(File path, String filename) {
-    	int count=0;
-		StringBuilder sb=new StringBuilder();
-		Stack<String> stack=new Stack<String>();
-		String className=filename.substring(0,filename.length()-6); // remove .class from the end 
-		stack.add(className);
-		do {
-			stack.add(path.getName());			
-		} while ((path=path.getParentFile())!=null &&
-				 !sourceDirectory.equals(path) && 
-				 ++count<MAX_PARENT);
-
-		sb.append(stack.pop());
-		
-		while (!stack.isEmpty()) {
-			sb.append(".");
-			sb.append(stack.pop());
-		}
-		return sb.toString();
+    private boolean accepted(WildcardMatcher excludes, WildcardMatcher includes, String name) {
+    	String rule=excludes.match(name);
+    	if (rule!=null) {
+    		if (getLog().isDebugEnabled()) { getLog().debug(name+" excluded by "+rule); }
+    		return false;
+    	}
+    	if (includes!=null) {
+    		rule=includes.match(name);
+    		if (rule==null) {
+    			if (getLog().isDebugEnabled()) { getLog().debug(name+" not matched by any include"); }
+    			return false;
+    		}
+    		if (getLog().isDebugEnabled()) { getLog().debug(name+" included by "+rule); }
+    	}
+		return true;
     }
     /**
-     * A filter that only accepts class files.
+     * Compile the class and property specifications into matchers.
      */
-    private static class ClassesOnlyFilter implements FilenameFilter {
-    	public static final ClassesOnlyFilter INSTANCE=new ClassesOnlyFilter();
-    	public boolean accept(File dir, String name) {
-    		return name.endsWith(".class")||name.endsWith(".CLASS");
+    private void compileMatchers() {
+    	String[] none=new String[0];
+    	excludesMatcher=new WildcardMatcher(excludes!=null?excludes:none);
+    	includesMatcher=WildcardMatcher.compile(includes);
+    	equalsVerifierExcludesMatcher=new WildcardMatcher(equalsVerifierExcludes!=null?equalsVerifierExcludes:none);
+    	equalsVerifierIncludesMatcher=WildcardMatcher.compile(equalsVerifierIncludes);
+    	hashCodeExcludesMatcher=new WildcardMatcher(hashCodeExcludes!=null?hashCodeExcludes:none);
+    	hashCodeIncludesMatcher=WildcardMatcher.compile(hashCodeIncludes);
+    	propertyExcludes=new PropertyMatcher(excludes!=null?excludes:none);
+    	for (String exclude : propertyExcludes.getInvalidRules()) {
+			getLog().warn("Excluded method "+exclude+" is invalid.  Expected format: is package.name.BeanClassName or package.name.BeanClassName.propertyName");
     	}
     }
     /**
@@ -198,74 +327,241 @@ public class TortillaMojo
         throws MojoExecutionException
     {
     	Set<Class<?>> classes=new HashSet<Class<?>>();
-    	
+    	metrics=new GenerationMetrics();
+    	try { charset=encoding==null||encoding.trim().isEmpty()?Charsets.UTF_8:Charset.forName(encoding.trim()); }
+    	catch (IllegalArgumentException e) {
+    		throw new MojoExecutionException("Unsupported encoding "+encoding,e);
+    	}
         File f = outputDirectory;
         if ( !f.exists() )
         {
             f.mkdirs();
         }
         if (sourceDirectory.exists()) {
+        	GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.CLASSLOADER);
         	try {
 				configureClassLoader();
 			} catch (DependencyResolutionRequiredException e) {
 				throw new MojoExecutionException("Unable to configure ClassLoader!",e);
+			} finally {
+				timer.stop();
 			}
+        	compileMatchers();
+        	try { renderer=new TestCaseRenderer(templateDirectory,baseClass,equalsVerifierParameters,seed); }
+        	catch (IOException e) {
+        		throw new MojoExecutionException("Failed to read templates",e);
+        	} catch (IllegalArgumentException e) {
+        		throw new MojoExecutionException(e.getMessage(),e);
+        	}
+        	supertypes=new SupertypeIndex(loader,sharedClasspath);
         	if (superExcludes!=null) {
         		initSuperExcludes();
         	}
         	getLog().info("Scanning for beans deserving of test cases ...");
-        	scanForBeans(classes, sourceDirectory);
-        	for (Class<?> clazz : classes) {
-        		try { generateTestCase(clazz); }
-        		catch (IntrospectionException e) {
-        			getLog().error("Failed to generate test case for "+clazz.getName(),e);
-        		}
-        		catch (Exception e) {
-        			throw new MojoExecutionException("Failed to generate test case for "+clazz.getName(),e);
+        	try { scanForBeans(classes, sourceDirectory); }
+        	catch (IOException e) {
+        		throw new MojoExecutionException("Failed to scan "+sourceDirectory+" for beans",e);
+        	}
+        	files=new SourceFileWriter();
+        	File legacyManifest=new File(outputDirectory,GenerationManifest.LEGACY_FILENAME);
+        	GenerationManifest previous=GenerationManifest.load(manifestFile.isFile()?manifestFile:legacyManifest);
+        	GenerationManifest manifest=new GenerationManifest(manifestFile);
+        	configFingerprint=configurationFingerprint();
+        	int unchanged=0, indexed=0;
+        	if (runtime) {
+        		indexed=indexBeans(classes,manifest);
+        	} else {
+        		unchanged=generateTestCases(classes,previous,manifest);
+        		metrics.count(GenerationMetrics.Count.UNCHANGED,unchanged);
+        	}
+        	int benchmarksUnchanged=0;
+        	if (benchmarks) {
+        		benchmarksUnchanged=generateBenchmarks(classes,previous,manifest);
+        	} else {
+        		for (String className : previous.getBenchmarkClassNames()) {
+        			manifest.putBenchmark(className,previous.getBenchmarkFingerprint(className),previous.getBenchmarkPath(className));
         		}
         	}
+        	int deleted=deleteVanished(previous,manifest);
+        	try { manifest.save(); }
+        	catch (IOException e) {
+        		throw new MojoExecutionException("Failed to write the manifest "+manifestFile,e);
+        	}
+        	if (legacyManifest.isFile()&&!legacyManifest.delete()) {
+        		getLog().warn("Failed to delete "+legacyManifest+", which is no longer used.");
+        	}
     		try { copySource(TortillaBase.class.getName()); }
     		catch (IOException e) {
     			throw new MojoExecutionException("Failed to copy base class "+baseClass+" into "+outputDirectory,e);
     		}
+    		if (runtime) {
+    			getLog().info("Indexed "+indexed+" beans for testing at runtime, "+deleted+" generated test cases removed.");
+    		} else {
+    			getLog().info("Generated test cases for "+(classes.size()-unchanged)+" beans, "+unchanged+" unchanged, "+deleted+" removed.");
+    		}
+    		if (benchmarks) {
+    			getLog().info("Generated benchmarks for "+(classes.size()-benchmarksUnchanged)+" beans into "+benchmarkDirectory+", "+benchmarksUnchanged+" unchanged.");
+    		}
+        	getLog().info("Wrote "+files.getWritten()+" files, "+files.getUnchanged()+" identical files left untouched.");
+        	if (metricsReport) {
+        		try { metrics.write(metricsFile); }
+        		catch (IOException e) {
+        			getLog().warn("Failed to write the metrics report "+metricsFile+": "+e);
+        		}
+        	}
         } else {
         	throw new MojoExecutionException("Build directory does not exist.");
         }
     }
+    /**
+     * Delete the test cases that were generated previously, but were not generated or kept by this execution,
+     * such as those of beans that no longer exist or are no longer accepted.
+     * @param previous The manifest of the previous execution.
+     * @param current The manifest of this execution.
+     * @return The number of test cases deleted.
+     */
+    private int deleteVanished(GenerationManifest previous, GenerationManifest current) {
+    	Set<String> paths=new HashSet<String>();
+    	for (String className : current.getClassNames()) {
+    		paths.add(current.getPath(className));
+    	}
+    	int count=0;
+    	for (String className : previous.getClassNames()) {
+    		String path=previous.getPath(className);
+    		if (path==null||paths.contains(path)) { continue; }
+    		File file=new File(outputDirectory,path);
+    		if (file.exists()) {
+    			if (file.delete()) {
+    				if (getLog().isDebugEnabled()) { getLog().debug("Deleted "+file+" as "+className+" is no longer tested."); }
+    				count++;
+    			} else {
+    				getLog().warn("Failed to delete "+file);
+    			}
+    		}
+    	}
+    	return count;
+    }
+    /**
+     * @param file A file within the outputDirectory.
+     * @return The path of the file relative to the outputDirectory.
+     */
+    private String relativePath(File file) {
+    	return outputDirectory.toURI().relativize(file.toURI()).getPath();
+    }
+    /**
+     * Compute a fingerprint for a bean from its bytecode, the bytecode of its supertypes and the plugin configuration.
+     * If the fingerprint of a bean is unchanged, the test case generated for it will be unchanged.
+     * @param clazz The bean class.
+     * @return The fingerprint.
+     * @throws IOException If a class file cannot be read.
+     */
+    private String fingerprint(Class<?> clazz) throws IOException {
+    	GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.FINGERPRINT);
+    	try {
+	    	Hasher hasher=Hashing.murmur3_128().newHasher();
+	    	hasher.putString(configFingerprint,Charsets.UTF_8);
+	    	Set<Class<?>> seen=new HashSet<Class<?>>();
+	    	LinkedList<Class<?>> queue=new LinkedList<Class<?>>();
+	    	queue.add(clazz);
+	    	while (!queue.isEmpty()) {
+	    		Class<?> current=queue.removeFirst();
+	    		if (current==null||current==Object.class||!seen.add(current)) { continue; }
+	    		hasher.putString(current.getName(),Charsets.UTF_8);
+	    		hasher.putBytes(bytecodeHash(current.getName()).asBytes());
+	    		queue.add(current.getSuperclass());
+	    		queue.addAll(Arrays.asList(current.getInterfaces()));
+	    	}
+	    	return hasher.hash().toString();
+    	} finally {
+    		timer.stop();
+    	}
+    }
+    /**
+     * Hash the class file of a class, reading it from the project class loader.
+     * The hashes of class files in jars are shared through the reactor cache when it is enabled.
+     * @param className The name of the class.
+     * @return The hash of the class file, or of the class name if the class file cannot be found.
+     * @throws IOException If the class file cannot be read.
+     */
+    private HashCode bytecodeHash(String className) throws IOException {
+    	HashCode hash=bytecodeHashes.get(className);
+    	if (hash!=null) { return hash; }
+    	URL resource=loader.getResource(className.replace('.','/')+".class");
+    	if (resource==null) {
+    		hash=Hashing.murmur3_128().hashString(className,Charsets.UTF_8);
+    	} else if ((hash=sharedClasspath!=null?sharedClasspath.getBytecodeHash(resource):null)==null) {
+    		InputStream is=resource.openStream();
+    		try { hash=Hashing.murmur3_128().hashBytes(ByteStreams.toByteArray(is)); }
+    		finally { is.close(); }
+    		if (sharedClasspath!=null) { sharedClasspath.putBytecodeHash(resource,hash); }
+    	}
+    	bytecodeHashes.put(className,hash);
+    	return hash;
+    }
+    /**
+     * Compute a fingerprint of everything besides the bean itself that affects generated test cases:
+     * the plugin configuration, the templates and the plugin's own classes.
+     * @return The fingerprint.
+     * @throws MojoExecutionException If the plugin's classes cannot be read.
+     */
+    private String configurationFingerprint() throws MojoExecutionException {
+    	Hasher hasher=Hashing.murmur3_128().newHasher();
+    	for (Object value : new Object[]{baseClass,Arrays.toString(includes),Arrays.toString(excludes),Arrays.toString(superExcludes),
+    			equalsVerifier,equalsVerifierParameters,Arrays.toString(equalsVerifierIncludes),Arrays.toString(equalsVerifierExcludes),allowNoNullary,
+    			aggregate,aggregateSize,runtime,seed,charset,
+    			hashCodeDistribution,hashCodeThreshold,Arrays.toString(hashCodeIncludes),Arrays.toString(hashCodeExcludes)}) {
+    		hasher.putString(String.valueOf(value),Charsets.UTF_8).putChar('\0');
+    	}
+    	for (SourceTemplate template : renderer.getTemplates()) {
+    		hasher.putString(template.getSource(),Charsets.UTF_8).putChar('\0');
+    	}
+    	LinkedList<Class<?>> queue=new LinkedList<Class<?>>(Arrays.asList(GENERATOR_CLASSES));
+    	while (!queue.isEmpty()) {
+    		Class<?> clazz=queue.removeFirst();
+    		queue.addAll(Arrays.asList(clazz.getDeclaredClasses()));
+    		InputStream is=clazz.getResourceAsStream(clazz.getName().substring(clazz.getName().lastIndexOf('.')+1)+".class");
+    		try {
+    			try { hasher.putBytes(ByteStreams.toByteArray(is)); }
+    			finally { is.close(); }
+    		} catch (IOException e) {
+    			throw new MojoExecutionException("Unable to read plugin class "+clazz.getName(),e);
+    		}
+    	}
+    	return hasher.hash().toString();
+    }
     /**
      * Initialize the superclass excludes.
      */
     private void initSuperExcludes() {
-		Set<Class<?>> set=new HashSet<Class<?>>();
 		for (String exclude : superExcludes) {
-			try {
-    			set.add(Class.forName(exclude,false,loader));
-			} catch (ClassNotFoundException e) {
+			if (supertypes.getClassFileInfo(exclude)==null) {
 				getLog().warn("Exclusion class "+exclude+" does not exist.");
+			} else {
+				superExcludeNames.add(exclude);
 			}
 		}
-		superExcludesClasses=set.toArray(new Class<?>[set.size()]);
 	}
     /**
-     * Copy a source file from the classpath into the outputDirectory.
+     * Copy a source file from the classpath into the outputDirectory, unless it is already there.
      * @param className The full name of the class.
+     * @return The file copied to, or null if the source is not on the classpath.
      * @throws IOException If an IO error occurs while reading or writing the file.
      */
-	private void copySource(String className) throws IOException {
+	private File copySource(String className) throws IOException {
     	String filename=className.replace('.','/')+".java";
     	InputStream is=getClass().getClassLoader().getResourceAsStream(filename);
     	if (is!=null) {
-    		byte[] buffer=new byte[4096];
-    		int count, idx=filename.lastIndexOf('/');
+    		byte[] content;
+    		try { content=new String(ByteStreams.toByteArray(is),Charsets.UTF_8).getBytes(charset); }
+    		finally { is.close(); }
+    		int idx=filename.lastIndexOf('/');
     		File dir=idx>0?new File(outputDirectory,filename.substring(0, idx)):outputDirectory;
 			if (!dir.exists()) { dir.mkdirs(); }
 			File file=new File(dir,idx>0?filename.substring(idx+1):filename);
-			OutputStream os=new FileOutputStream(file);
-    		while ((count=is.read(buffer))>0) {
-    			os.write(buffer, 0, count);
-    		}
-    		os.close();
+			write(file,content);
+			return file;
     	}
+    	return null;
     }
 	/**
 	 * Parses and adds a collection of Strings to a collection of URLs.
@@ -274,7 +570,7 @@ public class TortillaMojo
 	 * @throws MojoExecutionException If one of the URLs cannot be parsed.
 	 */
     private void addAll(Collection<URL> lst,Collection<String> elements) throws MojoExecutionException {
-    	getLog().debug("Loading elements into list: "+elements);
+    	if (getLog().isDebugEnabled()) { getLog().debug("Loading elements into list: "+elements); }
     	for (String element : elements) {
     		File f=new File(element);
     		if (f.exists()) {
@@ -290,6 +586,7 @@ public class TortillaMojo
     }
     /**
      * Instantiates and configures a ClassLoader to include elements from the test case classpath for the Maven proejct.
+     * When sharedCache is enabled, also fingerprints the jar files of the classpath for the reactor cache.
      * @throws MojoExecutionException
      * @throws DependencyResolutionRequiredException
      */
@@ -302,113 +599,543 @@ public class TortillaMojo
 			throw new MojoExecutionException("Failed to generate URL for source directory!",e);
 		}
     	addAll(urls,project.getTestClasspathElements());
-    	getLog().debug("Generated classpath of "+urls);
+    	if (getLog().isDebugEnabled()) { getLog().debug("Generated classpath of "+urls); }
 		loader = new URLClassLoader(urls.toArray(new URL[urls.size()]));
+		if (sharedCache) {
+			if (session!=null) {
+				reactorCache=ReactorCache.forBuild(session.getRequest());
+				sharedClasspath=reactorCache.classpath(urls);
+			} else {
+				getLog().warn("sharedCache is enabled, but there is no Maven session to share the cache within.");
+			}
+		}
+    }
+    /**
+     * Generate test cases for classes concurrently.  Each test case, or each suite when aggregating, passes through
+     * introspection, rendering into memory and writing on one of generationThreads threads; results are collected
+     * in class name order so the log and the manifest are deterministic.
+     * @param classes The classes to generate test cases for.
+     * @param previous The manifest of the previous execution.
+     * @param manifest The manifest to record generated test cases in.
+     * @return The number of classes skipped because they had not changed.
+     * @throws MojoExecutionException If generation fails for any reason other than introspection.
+     */
+    private int generateTestCases(Collection<Class<?>> classes, final GenerationManifest previous, GenerationManifest manifest) throws MojoExecutionException {
+    	List<Class<?>> sorted=sorted(classes);
+    	final Map<String,Integer> previousMembers=new HashMap<String,Integer>();
+    	for (String className : previous.getClassNames()) {
+    		String path=previous.getPath(className);
+    		if (path!=null) { previousMembers.put(path,previousMembers.containsKey(path)?previousMembers.get(path)+1:1); }
+    	}
+    	final List<List<Class<?>>> units=aggregate?suites(sorted):singletons(sorted);
+    	ExecutorService executor=Executors.newFixedThreadPool(generationThreads>0?generationThreads:Runtime.getRuntime().availableProcessors());
+    	try {
+    		List<Future<List<Generated>>> futures=new ArrayList<Future<List<Generated>>>(units.size());
+    		for (int i=0;i<units.size();i++) {
+    			final List<Class<?>> unit=units.get(i);
+    			final String suiteName=aggregate?suiteName(units,i):null;
+    			futures.add(executor.submit(new Callable<List<Generated>>() {
+					public List<Generated> call() throws Exception {
+						if (suiteName==null) {
+							return Collections.singletonList(generateTestCase(unit.get(0),previous));
+						}
+						return generateSuite(unit,suiteName,previous,previousMembers);
+					}
+				}));
+    		}
+    		int unchanged=0;
+    		for (int i=0;i<units.size();i++) {
+    			final String name=units.get(i).get(0).getName();
+    			try {
+    				for (Generated generated : futures.get(i).get()) {
+    					manifest.put(generated.className,generated.fingerprint,generated.path);
+    					if (generated.unchanged) { unchanged++; }
+    				}
+    			} catch (ExecutionException e) {
+    				if (e.getCause() instanceof IntrospectionException) {
+    					getLog().error("Failed to generate test case for "+name,e.getCause());
+    					if (previous.contains(name)) {
+    						manifest.put(name,previous.getFingerprint(name),previous.getPath(name));
+    					}
+    				} else {
+    					throw new MojoExecutionException("Failed to generate test case for "+name,e.getCause());
+    				}
+    			} catch (InterruptedException e) {
+    				Thread.currentThread().interrupt();
+    				throw new MojoExecutionException("Interrupted while generating test case for "+name,e);
+    			}
+    		}
+    		return unchanged;
+    	} finally {
+    		executor.shutdownNow();
+    	}
+    }
+    /**
+     * Write the index of beans tested by TortillaRuntime, and the test that runs it, instead of generating test
+     * cases.  Beans are introspected concurrently on generationThreads threads.  The index directory is added to
+     * the test resources of the project.
+     * @param classes The classes to index.
+     * @param manifest The manifest to record the runtime sources in.
+     * @return The number of beans indexed.
+     * @throws MojoExecutionException If the index or the runtime sources cannot be written.
+     */
+    private int indexBeans(Collection<Class<?>> classes, GenerationManifest manifest) throws MojoExecutionException {
+    	List<BeanModel> models=models(classes,"index");
+    	metrics.count(GenerationMetrics.Count.GENERATED,models.size());
+    	try {
+    		GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.RENDER);
+    		String index, source;
+    		try {
+    			index=BeanIndex.render(models,equalsVerifier?equalsVerifierParameters:null);
+    			source=renderer.renderRuntimeTest(RUNTIME_TEST.substring(RUNTIME_TEST.lastIndexOf('.')+1));
+    		} finally {
+    			timer.stop();
+    		}
+    		mkdirs(indexDirectory);
+    		write(new File(indexDirectory,TortillaRuntime.INDEX),index.getBytes(Charsets.UTF_8));
+    		File test=new File(outputDirectory,RUNTIME_TEST.replace('.','/')+".java");
+    		mkdirs(test.getParentFile());
+    		write(test,source.getBytes(charset));
+    		manifest.put(RUNTIME_TEST,configFingerprint,relativePath(test));
+    		File engine=copySource(TortillaRuntime.class.getName());
+    		if (engine==null) { throw new IOException("The source of "+TortillaRuntime.class.getName()+" is missing from the plugin."); }
+    		manifest.put(TortillaRuntime.class.getName(),configFingerprint,relativePath(engine));
+    	} catch (IOException e) {
+    		throw new MojoExecutionException("Failed to write the bean index into "+indexDirectory,e);
+    	}
+    	addTestResource(indexDirectory);
+    	return models.size();
+    }
+    /**
+     * Introspect beans concurrently on generationThreads threads.  Beans that cannot be introspected are logged
+     * and left out.
+     * @param classes The classes to introspect.
+     * @param action What the models are for, used in messages.
+     * @return The models of the beans to test, ordered by class name.
+     * @throws MojoExecutionException If a bean cannot be modelled for any reason other than introspection.
+     */
+    private List<BeanModel> models(Collection<Class<?>> classes, String action) throws MojoExecutionException {
+    	List<Class<?>> sorted=sorted(classes);
+    	ExecutorService executor=Executors.newFixedThreadPool(generationThreads>0?generationThreads:Runtime.getRuntime().availableProcessors());
+    	List<BeanModel> models=new ArrayList<BeanModel>(sorted.size());
+    	try {
+    		List<Future<Optional<BeanModel>>> futures=new ArrayList<Future<Optional<BeanModel>>>(sorted.size());
+    		for (final Class<?> clazz : sorted) {
+    			futures.add(executor.submit(new Callable<Optional<BeanModel>>() {
+					public Optional<BeanModel> call() throws Exception {
+						return model(clazz,fingerprint(clazz));
+					}
+				}));
+    		}
+    		for (int i=0;i<sorted.size();i++) {
+    			final String name=sorted.get(i).getName();
+    			try {
+    				Optional<BeanModel> model=futures.get(i).get();
+    				if (model.isPresent()) { models.add(model.get()); }
+    			} catch (ExecutionException e) {
+    				if (e.getCause() instanceof IntrospectionException) {
+    					getLog().error("Failed to "+action+" "+name,e.getCause());
+    				} else {
+    					throw new MojoExecutionException("Failed to "+action+" "+name,e.getCause());
+    				}
+    			} catch (InterruptedException e) {
+    				Thread.currentThread().interrupt();
+    				throw new MojoExecutionException("Interrupted while trying to "+action+" "+name,e);
+    			}
+    		}
+    	} finally {
+    		executor.shutdownNow();
+    	}
+    	return models;
+    }
+    /**
+     * Write a JMH benchmark for each bean into the benchmarkDirectory, skipping beans whose benchmark is recorded
+     * with the same fingerprint when generating incrementally, and delete the benchmarks recorded for beans that
+     * are no longer benchmarked.  Files the manifest does not record, such as hand written benchmarks, are left
+     * alone.  The directory is not added to the project; benchmarks are compiled with the generated tests by a
+     * build profile, so that regular builds do not depend on JMH.
+     * @param classes The classes to benchmark.
+     * @param previous The manifest of the previous execution.
+     * @param manifest The manifest to record the benchmarks in.
+     * @return The number of beans whose benchmark was unchanged.
+     * @throws MojoExecutionException If a benchmark cannot be written.
+     */
+    private int generateBenchmarks(Collection<Class<?>> classes, GenerationManifest previous, GenerationManifest manifest) throws MojoExecutionException {
+    	try {
+    		Map<String,String> fingerprints=new HashMap<String,String>();
+    		List<Class<?>> changed=new ArrayList<Class<?>>();
+    		int unchanged=0;
+    		for (Class<?> clazz : classes) {
+    			String name=clazz.getName(), fingerprint=fingerprint(clazz), path=previous.getBenchmarkPath(name);
+    			if (incremental&&fingerprint.equals(previous.getBenchmarkFingerprint(name))&&(path==null||new File(benchmarkDirectory,path).isFile())) {
+    				manifest.putBenchmark(name,fingerprint,path);
+    				unchanged++;
+    			} else {
+    				fingerprints.put(name,fingerprint);
+    				changed.add(clazz);
+    			}
+    		}
+    		for (BeanModel model : models(changed,"benchmark")) {
+    			File dir=new File(benchmarkDirectory,model.getPackageName().replace('.','/'));
+    			mkdirs(dir);
+    			File file=new File(dir,model.getSimpleName()+"Benchmark.java");
+    			GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.RENDER);
+    			String source;
+    			try { source=renderer.renderBenchmark(model); }
+    			finally { timer.stop(); }
+    			write(file,source.getBytes(charset));
+    			manifest.putBenchmark(model.getClassName(),fingerprints.get(model.getClassName()),
+    					benchmarkDirectory.toURI().relativize(file.toURI()).getPath());
+    		}
+    		Set<String> paths=new HashSet<String>();
+    		for (String className : manifest.getBenchmarkClassNames()) {
+    			paths.add(manifest.getBenchmarkPath(className));
+    		}
+    		for (String className : previous.getBenchmarkClassNames()) {
+    			String path=previous.getBenchmarkPath(className);
+    			if (path==null||paths.contains(path)) { continue; }
+    			File file=new File(benchmarkDirectory,path);
+    			if (file.exists()) {
+    				if (file.delete()) {
+    					if (getLog().isDebugEnabled()) { getLog().debug("Deleted "+file+" as "+className+" is no longer benchmarked."); }
+    				} else {
+    					getLog().warn("Failed to delete "+file);
+    				}
+    			}
+    		}
+    		return unchanged;
+    	} catch (IOException e) {
+    		throw new MojoExecutionException("Failed to write benchmarks into "+benchmarkDirectory,e);
+    	}
+    }
+    /**
+     * Add a directory to the test resources of the project, unless it has been added already.
+     * @param directory The directory.
+     */
+    private void addTestResource(File directory) {
+    	for (Object resource : project.getTestResources()) {
+    		if (directory.equals(new File(((Resource)resource).getDirectory()))) { return; }
+    	}
+    	Resource resource=new Resource();
+    	resource.setDirectory(directory.getPath());
+    	project.addTestResource(resource);
+    }
+    /**
+     * @param classes Classes.
+     * @return The classes ordered by name.
+     */
+    private static List<Class<?>> sorted(Collection<Class<?>> classes) {
+    	List<Class<?>> sorted=new ArrayList<Class<?>>(classes);
+    	Collections.sort(sorted,new Comparator<Class<?>>() {
+			public int compare(Class<?> o1, Class<?> o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+    	return sorted;
+    }
+    /**
+     * @param sorted The classes to generate test cases for, ordered by name.
+     * @return A unit of generation per class.
+     */
+    private static List<List<Class<?>>> singletons(List<Class<?>> sorted) {
+    	List<List<Class<?>>> units=new ArrayList<List<Class<?>>>(sorted.size());
+    	for (Class<?> clazz : sorted) {
+    		units.add(Collections.<Class<?>>singletonList(clazz));
+    	}
+    	return units;
     }
     /**
-     * Generate a test case for a class.
+     * Group classes into suites, one per package, or several of at most aggregateSize classes per package.  The
+     * suites of a package are adjacent, even where the classes of the package are not in name order.
+     * @param sorted The classes to generate test cases for, ordered by name.
+     * @return The members of each suite.
+     */
+    private List<List<Class<?>>> suites(List<Class<?>> sorted) {
+    	Map<String,List<Class<?>>> packages=new LinkedHashMap<String,List<Class<?>>>();
+    	for (Class<?> clazz : sorted) {
+    		List<Class<?>> members=packages.get(packageName(clazz));
+    		if (members==null) {
+    			members=new ArrayList<Class<?>>();
+    			packages.put(packageName(clazz),members);
+    		}
+    		members.add(clazz);
+    	}
+    	List<List<Class<?>>> suites=new ArrayList<List<Class<?>>>();
+    	for (List<Class<?>> members : packages.values()) {
+    		int size=aggregateSize>0?aggregateSize:members.size();
+    		for (int i=0;i<members.size();i+=size) {
+    			suites.add(members.subList(i,Math.min(i+size,members.size())));
+    		}
+    	}
+    	return suites;
+    }
+    /**
+     * @param clazz A class.
+     * @return The name of the package of the class, or an empty string for the default package.
+     */
+    private static String packageName(Class<?> clazz) {
+    	int idx=clazz.getName().lastIndexOf('.');
+    	return idx>=0?clazz.getName().substring(0,idx):"";
+    }
+    /**
+     * Name a suite.  Suites are named TortillaBeansTest, or TortillaBeans1Test, TortillaBeans2Test and so on
+     * within each package when aggregateSize is set.
+     * @param suites The members of all suites, as returned by {@link #suites(List)}.
+     * @param index The index of the suite to name.
+     * @return The simple name of the suite class.
+     */
+    private String suiteName(List<List<Class<?>>> suites, int index) {
+    	if (aggregateSize<=0) { return SUITE_PREFIX+SUITE_SUFFIX; }
+    	int number=1;
+    	String pkg=packageName(suites.get(index).get(0));
+    	for (int i=index-1;i>=0&&packageName(suites.get(i).get(0)).equals(pkg);i--) {
+    		number++;
+    	}
+    	return SUITE_PREFIX+number+SUITE_SUFFIX;
+    }
+    /**
+     * Generate a test case for a class, unless it is unchanged since the previous execution.  When the reactor
+     * cache is enabled, a bean with the same fingerprint is only introspected once per build.
      * @param clazz The class to generate the test case for.
+     * @param previous The manifest of the previous execution.
+     * @return The outcome of generation.
      * @throws IOException If the test case cannot be written.
      * @throws IntrospectionException If the bean cannot be introspected.
      */
-    private void generateTestCase(Class<?> clazz) throws IOException, IntrospectionException {
+    private Generated generateTestCase(Class<?> clazz, GenerationManifest previous) throws IOException, IntrospectionException {
+    	final String name=clazz.getName();
+    	TortillaEvents.Generate event=TortillaEvents.AVAILABLE?new TortillaEvents.Generate():null;
+    	if (event!=null) { event.begin(); }
+    	int propertyCount=-1;
+    	try {
+	    	String fingerprint=fingerprint(clazz);
+	    	String path=previous.getPath(name);
+	    	if (incremental&&fingerprint.equals(previous.getFingerprint(name))&&(path==null||new File(outputDirectory,path).exists())) {
+	    		return new Generated(name,fingerprint,path,true);
+	    	}
+	    	Optional<BeanModel> model=model(clazz,fingerprint);
+	    	if (!model.isPresent()) {
+	    		return new Generated(name,fingerprint,null,false);
+	    	}
+	    	metrics.count(GenerationMetrics.Count.GENERATED);
+	    	propertyCount=model.get().getProperties().size();
+	    	GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.RENDER);
+	    	String source;
+	    	try { source=renderer.render(model.get()); }
+	    	finally { timer.stop(); }
+	    	File file=write(model.get(),source);
+	    	return new Generated(name,fingerprint,relativePath(file),false);
+    	} finally {
+    		if (event!=null&&event.shouldCommit()) {
+    			event.className=name;
+    			event.propertyCount=propertyCount;
+    			event.commit();
+    		}
+    	}
+    }
+    /**
+     * Generate a suite of tests for several classes of a package, unless none of them changed and the suite
+     * has the same members as in the previous execution.  A class that cannot be introspected is left out of the
+     * suite and the manifest, so that it is tried again by the next execution.
+     * @param members The classes to test in the suite, all in the same package.
+     * @param suiteName The simple name of the suite class.
+     * @param previous The manifest of the previous execution.
+     * @param previousMembers The number of classes recorded for each path in the previous manifest.
+     * @return The outcome of generation for each class.
+     * @throws IOException If the suite cannot be written.
+     */
+    private List<Generated> generateSuite(List<Class<?>> members, String suiteName, GenerationManifest previous, Map<String,Integer> previousMembers) throws IOException {
+    	String packageName=packageName(members.get(0));
+    	String path=relativePath(new File(new File(outputDirectory,packageName.replace('.','/')),suiteName+".java"));
+    	String[] fingerprints=new String[members.size()];
+    	boolean unchanged=incremental;
+    	int count=0;
+    	for (int i=0;i<fingerprints.length;i++) {
+    		String name=members.get(i).getName();
+    		fingerprints[i]=fingerprint(members.get(i));
+    		String previousPath=previous.getPath(name);
+    		unchanged&=fingerprints[i].equals(previous.getFingerprint(name))&&(previousPath==null||previousPath.equals(path));
+    		if (path.equals(previousPath)) { count++; }
+    	}
+    	Integer expected=previousMembers.get(path);
+    	if (unchanged&&count==(expected!=null?expected:0)&&(count==0||new File(outputDirectory,path).exists())) {
+    		List<Generated> generated=new ArrayList<Generated>(members.size());
+    		for (int i=0;i<fingerprints.length;i++) {
+    			String name=members.get(i).getName();
+    			generated.add(new Generated(name,fingerprints[i],previous.getPath(name),true));
+    		}
+    		return generated;
+    	}
+    	List<BeanModel> models=new ArrayList<BeanModel>(members.size());
+    	List<Generated> generated=new ArrayList<Generated>(members.size());
+    	for (int i=0;i<fingerprints.length;i++) {
+    		String name=members.get(i).getName();
+    		try {
+    			Optional<BeanModel> model=model(members.get(i),fingerprints[i]);
+    			if (model.isPresent()) { models.add(model.get()); }
+    			generated.add(new Generated(name,fingerprints[i],model.isPresent()?path:null,false));
+    		} catch (IntrospectionException e) {
+    			getLog().error("Failed to generate test case for "+name,e);
+    		}
+    	}
+    	if (!models.isEmpty()) {
+    		metrics.count(GenerationMetrics.Count.GENERATED,models.size());
+    		GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.RENDER);
+    		String source;
+    		try { source=renderer.renderSuite(packageName,suiteName,models); }
+    		finally { timer.stop(); }
+    		File dir=new File(outputDirectory,path).getParentFile();
+    		mkdirs(dir);
+    		write(new File(outputDirectory,path),source.getBytes(charset));
+    	}
+    	return generated;
+    }
+    /**
+     * Get the model of a bean, from the reactor cache when it is enabled.
+     * @param clazz The bean class.
+     * @param fingerprint The fingerprint of the bean.
+     * @return The model of the bean, or absent if no test case should be generated.
+     * @throws IntrospectionException If the bean cannot be introspected.
+     */
+    private Optional<BeanModel> model(Class<?> clazz, String fingerprint) throws IntrospectionException {
+    	Optional<BeanModel> model=reactorCache!=null?reactorCache.getBean(fingerprint):null;
+    	if (model==null) {
+    		model=Optional.fromNullable(model(clazz));
+    		if (reactorCache!=null) { reactorCache.putBean(fingerprint,model); }
+    	} else {
+    		if (getLog().isDebugEnabled()) { getLog().debug("Reusing the model of "+clazz.getName()+" from the reactor cache."); }
+    	}
+    	return model;
+    }
+    /**
+     * Introspect a class and capture everything needed to render its test case.
+     * @param clazz The class to introspect.
+     * @return The model of the bean, or null if no test case should be generated.
+     * @throws IntrospectionException If the bean cannot be introspected.
+     */
+    private BeanModel model(Class<?> clazz) throws IntrospectionException {
+    	GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.INTROSPECTION);
+    	List<PropertyDescriptor> descriptors;
+    	try { descriptors=introspect(clazz); }
+    	finally { timer.stop(); }
+    	if (descriptors==null) { return null; }
+    	List<PropertyModel> properties=new ArrayList<PropertyModel>(descriptors.size());
+    	timer=metrics.start(GenerationMetrics.Phase.TYPE_RESOLUTION);
+    	try {
+    		for (PropertyDescriptor d : descriptors) {
+    			properties.add(new PropertyModel(clazz,d));
+    		}
+    	} finally {
+    		timer.stop();
+    	}
+    	boolean equalsContract=equalsVerifier&&accepted(equalsVerifierExcludesMatcher,null,equalsVerifierIncludesMatcher,clazz);
+    	boolean hashCode=hashCodeDistribution&&accepted(hashCodeExcludesMatcher,null,hashCodeIncludesMatcher,clazz);
+    	return new BeanModel(clazz,properties,equalsContract,equalsContract&&hasRedefinedSuperclass(clazz),hashCode?hashCodeThreshold:0);
+    }
+    /**
+     * Determine if a test case should be generated for a class, and find the properties to test.
+     * @param clazz The class to introspect.
+     * @return The accepted properties of the class, ordered by name, or null if no test case should be generated.
+     * @throws IntrospectionException If the bean cannot be introspected.
+     */
+    private List<PropertyDescriptor> introspect(Class<?> clazz) throws IntrospectionException {
     	if ((clazz.getModifiers()&(Modifier.ABSTRACT|Modifier.INTERFACE))>0) {
-    		getLog().debug("Test case will not be generated for "+clazz.getName()+" as it is not an implementation class.");
-    		return;
+    		if (getLog().isDebugEnabled()) { getLog().debug("Test case will not be generated for "+clazz.getName()+" as it is not an implementation class."); }
+    		return null;
     	}
     	if (clazz.isEnum()||Enum.class.isAssignableFrom(clazz)) {
-    		getLog().debug("Test case will not be generated for "+clazz.getName()+" as it is an enum.");
+    		if (getLog().isDebugEnabled()) { getLog().debug("Test case will not be generated for "+clazz.getName()+" as it is an enum."); }
     	}
     	if (!Modifier.isPublic(clazz.getModifiers())) {
     		getLog().info("Test case will not be generated for "+clazz.getName()+" as it is not public.");
-    		return;
+    		return null;
     	}
     	try { clazz.getConstructor(); }
     	catch (NoSuchMethodException e) {
     		if (!allowNoNullary) {
     			getLog().info("Test case will not be generated for "+clazz.getName()+" as it does not have a nullary constructor.");
-        		return;
+        		return null;
     		}
     	}
-    	Set<PropertyDescriptor> descriptors=new HashSet<PropertyDescriptor>();
-		for (PropertyDescriptor d : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
-			descriptors.add(d);
+    	PropertyDescriptor[] all=Introspector.getBeanInfo(clazz).getPropertyDescriptors();
+		if (all.length==0) {
+			if (getLog().isDebugEnabled()) { getLog().debug("No property descriptors for "+clazz.getName()); }
+			return null;
 		}
-		if (descriptors.size()==0) {
-			getLog().debug("No property descriptors for "+clazz.getName());
-			return;
+		List<PropertyDescriptor> descriptors=new ArrayList<PropertyDescriptor>(all.length);
+		for (PropertyDescriptor d : all) {
+			if (accepted(d)) {
+				descriptors.add(d);
+			} else if (getLog().isDebugEnabled()) {
+				getLog().debug("Property "+clazz.getName()+"."+d.getName()+" was not accepted, skipping.");
+			}
 		}
-    	String pkg=clazz.getPackage().getName().replace('.','/');
+		Collections.sort(descriptors,new Comparator<PropertyDescriptor>() {
+			public int compare(PropertyDescriptor o1, PropertyDescriptor o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		return descriptors;
+    }
+    /**
+     * Write the source of a test case into the outputDirectory, unless the file already has the same source.
+     * @param model The model of the bean the test case was rendered for.
+     * @param source The source of the test case.
+     * @return The file written.
+     * @throws IOException If the test case cannot be written.
+     */
+    private File write(BeanModel model, String source) throws IOException {
+    	String pkg=model.getPackageName().replace('.','/');
     	File dir=new File(outputDirectory,pkg);
+    	mkdirs(dir);
+    	final File file=new File(dir,model.getSimpleName()+"BeanTest.java");
+    	if (!write(file,source.getBytes(charset))&&getLog().isDebugEnabled()) {
+    		getLog().debug(file+" is unchanged.");
+    	}
+    	return file;
+    }
+    /**
+     * Write a file through the SourceFileWriter, timing it as the write phase.
+     * @param file The file to write.
+     * @param content The content of the file.
+     * @return true if the file was written, false if it already had the content.
+     * @throws IOException If the file cannot be written.
+     */
+    private boolean write(File file, byte[] content) throws IOException {
+    	GenerationMetrics.Timer timer=metrics.start(GenerationMetrics.Phase.WRITE);
+    	try { return files.write(file,content); }
+    	finally { timer.stop(); }
+    }
+    /**
+     * Create a directory and its parents, tolerating concurrent creation by another thread.
+     * @param dir The directory.
+     * @throws IOException If the directory cannot be created.
+     */
+    private void mkdirs(File dir) throws IOException {
     	if (!dir.exists()) { 
     		if (dir.mkdirs()) {
-    			getLog().debug("Created directory "+dir.getPath());
-    		} else {
+    			if (getLog().isDebugEnabled()) { getLog().debug("Created directory "+dir.getPath()); }
+    		} else if (!dir.isDirectory()) {
     			getLog().error("Failed to create directory "+dir.getPath());
     			throw new IOException("Failed to create directory "+dir.getPath());
     		}
     	}
-    	String beanClass=clazz.getName().replace('$', '.');
-    	String className=clazz.getSimpleName()+"BeanTest";
-    	final File file=new File(dir,className+".java");
-    	OutputStream os=new FileOutputStream(file);
-    	Writer writer=new BufferedWriter(new OutputStreamWriter(os));
-    	try {
-	    	writer.append("package ");
-	    	writer.append(clazz.getPackage().getName());
-	    	writer.append(";\n\n");
-	    	for (String in : IMPORTS) {
-	    		writer.append("import ");
-	    		writer.append(in);
-	    		writer.append(";\n");
-	    	}
-	    	writer.append("\npublic class ");
-	    	writer.append(className);
-	    	writer.append(" extends ");
-	    	writer.append(baseClass);
-	    	writer.append(" {\n");
-	    	writer.append("\t");
-	    	writer.append(beanClass);
-	    	writer.append(" instance;\n");
-			writer.append("\n\t@Before\n");
-			writer.append("\tpublic void setUp() throws Exception {\n");
-			writer.append("\t\tinstance=new ");
-			writer.append(beanClass);
-			writer.append("();\n\t}\n\n");
-			for (PropertyDescriptor d : descriptors) {
-				if (accepted(d)) {
-					generateReadWriteTest(writer,clazz,d);
-				} else {
-					getLog().debug("Property "+clazz.getName()+"."+d.getName()+" was not accepted, skipping.");
-				}
-			}
-			if (equalsVerifier && accepted(equalsVerifierExcludes,null,equalsVerifierIncludes,clazz)) {
-				generateEqualsContractTest(writer,clazz);
-			}
-	    	writer.append("}\n");
-    	} finally {
-    		writer.close();
-    	}
     }
     /**
-     * Generates an equals contract test using jqno.nl's equalsverifier.
-     * @param writer The writer to write to.
-     * @param beanClass The class to write the test for.
-     * @throws IOException If an IO error occurs.
+     * The outcome of generating a test case for a class.
      */
-    private void generateEqualsContractTest(Writer writer, Class<?> beanClass) throws IOException {
-		writer.append("\t@Test\n");
-		writer.append("\tpublic void equalsContract() throws Exception {\n\t\tEqualsVerifier.forClass(");
-		writer.append(beanClass.getName());
-		writer.append(".class)");
-		if (hasRedefinedSuperclass(beanClass)) {
-			writer.append(".withRedefinedSuperclass()");
-		}
-		if (equalsVerifierParameters!=null) {
-			writer.append(equalsVerifierParameters);
-		}
-		writer.append(".verify();\n");
-		writer.append("\t}\n\n");
+    private static class Generated {
+    	private final String className;
+    	private final String fingerprint;
+    	private final String path;
+    	private final boolean unchanged;
+
+    	Generated(String className, String fingerprint, String path, boolean unchanged) {
+    		this.className=className;
+    		this.fingerprint=fingerprint;
+    		this.path=path;
+    		this.unchanged=unchanged;
+    	}
     }
     /**
      * Determine if a class has a redefined equals method.  This is useful for
@@ -433,70 +1160,4 @@ public class TortillaMojo
     	} while ((c=c.getSuperclass())!=Object.class);
     	return count>0;
     }
-    /**
-     * Generate a JUnit read/write test for a bean.
-     * @param writer The write to write to.
-     * @param beanClass The bean to generate the test for.
-     * @param descriptor The descriptor of the property to generate the test for.
-     * @throws IOException If an IO error occurs while writing the test.
-     */
-    private static void generateReadWriteTest(Writer writer, Class<?> beanClass, PropertyDescriptor descriptor) throws IOException {
-    	String propertyType;
-    	Class<?> propertyTypeClass=TortillaReflection.getActualPropertyType(beanClass, descriptor);
-    	if (!propertyTypeClass.isArray()) {
-    		propertyType=propertyTypeClass.getName().replace('$', '.');
-    	} else {
-    		propertyType=propertyTypeClass.getComponentType().getName().replace('$', '.')+"[]";
-    	}
-		writer.append("\t@Test\n");
-		writer.append("\tpublic void test");
-		writer.append(upperFirstChar(descriptor.getName()));
-		writer.append("RW() throws Exception {\n");
-		writer.append("\t\tfinal ");
-    	writer.append(propertyType);
-    	writer.append(" expected=create(");
-    	writer.append(propertyType);
-    	writer.append(".class);\n\n");
-    	if (!propertyTypeClass.isPrimitive()) {
-        	writer.append("\t\tinstance.");
-        	writer.append(descriptor.getWriteMethod().getName());
-        	writer.append("((");
-        	writer.append(propertyType);
-        	writer.append(")null);\n");
-	    	writer.append("\t\tassertEquals(\"Expected null returned from ");
-	    	writer.append(descriptor.getReadMethod().toGenericString());
-	    	writer.append("\",null,instance.");
-	    	writer.append(descriptor.getReadMethod().getName());
-	    	writer.append("());\n");
-    	}
-    	writer.append("\t\tinstance.");
-    	writer.append(descriptor.getWriteMethod().getName());
-    	writer.append("(expected);\n\t\t");
-    	if (!propertyTypeClass.isArray()) {
-	    	writer.append("assertEquals(\"Unexpected response from ");
-	    	writer.append(descriptor.getReadMethod().toGenericString());
-	    	writer.append("\",expected,instance.");
-	    	writer.append(descriptor.getReadMethod().getName());
-	    	writer.append("());\n");
-    	} else {
-	    	writer.append("assertArrayEquals(\"");
-	    	writer.append(descriptor.getName());
-	    	writer.append("\",expected,instance.");
-	    	writer.append(descriptor.getReadMethod().getName());
-	    	writer.append("());\n");
-    	}
-    	writer.append("\t}\n\n");
-    }
-    /**
-     * Returns a copy of a string with the first character in upper case.
-     * @param str The string to copy.
-     * @return The copied string.
-     */
-    private static String upperFirstChar(String str) {
-    	if (str==null) { return null; }
-    	if (str.length()==0) { return str; }
-		char[] prop=str.toCharArray();
-		prop[0]=Character.toUpperCase(prop[0]);
-		return new String(prop); 
-    }
 }
@@ -1,23 +1,38 @@
 package net.elementj.tortilla;
 
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.GenericDeclaration;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 
 import com.google.common.collect.Lists;
 
 /**
- * Reflection utilities used by Tortilla.
+ * Reflection utilities used by Tortilla.  The type variable bindings of each class are computed in a single pass
+ * over its hierarchy and cached, so resolving a property type is a map lookup.
  */
 public class TortillaReflection {
+	private static volatile Cache cache=new Cache();
 	private TortillaReflection() { }
+	/**
+	 * Discard all cached type variable bindings, for example between builds in a long-lived JVM.
+	 */
+	public static void clearCache() {
+		cache=new Cache();
+	}
 	/**
 	 * Finds the inheritance path to a declaration of a generic type.
 	 * @param start The starting point
@@ -49,12 +64,6 @@ public class TortillaReflection {
     public static Class<?> getActualPropertyType(Class<?> parent, PropertyDescriptor descriptor) {
     	return getReturnType(parent,descriptor.getReadMethod());
     }
-    private static int indexOf(TypeVariable<?>[] typeParameters,String name) {
-    	for (int i=0; i<typeParameters.length; i++) {
-    		if (name.equals(typeParameters[i].getName())) { return i; }
-    	}
-    	return -1;    	
-    }
     /**
      * Gets the return type for a method in the given class, taking generics into account (as much is possible).
      * @param parent The class
@@ -62,53 +71,219 @@ public class TortillaReflection {
      * @return The generic return type, if it can be identified.
      */
     public static Class<?> getReturnType(Class<?> parent, Method method) {
-    	Type type=method.getGenericReturnType();
-    	if (type instanceof TypeVariable) {
-    		TypeVariable<?> var=(TypeVariable<?>)type;
-    		final GenericDeclaration gendec=var.getGenericDeclaration();
-    		
-    		// find path from parent class to generic declaration
-    		List<Class<?>> path=findPathToDeclaration(parent,gendec);
-    		if (path.size()==0) { 
-    			throw new IllegalArgumentException("Unable to resolve generic declaration path to "+type); 
-			}
-    		ListIterator<Class<?>> it=path.listIterator();
-    		Class<?> current=null;
-    		
-    		// look for the generic declaration in the list iterator so we can find related classes in the list
-    		while (it.hasNext()&&!gendec.equals(current=it.next()));
-    		if (!gendec.equals(current)) { throw new RuntimeException("Generic declaration not found in the list hierarchy."); }
-    		int paramIndex=indexOf(current.getTypeParameters(),var.getName());
-    		int paramCount=current.getTypeParameters().length;
-    		
-    		do {
-        		Type currentType=current.getGenericSuperclass();
-	    		// if the variable wasn't found in the generic declaration then we can't proceed
-	    		// if subclasses don't have the variable that could be okay
-	    		if (gendec.equals(current)&&paramIndex<0) { 
-	    			throw new RuntimeException("Unable to find index of generic parameter "+var.getName()+" in generic declaration."); 
-				}
-	    		assert currentType!=null;
-	    		if (currentType instanceof ParameterizedType) {
-	    			ParameterizedType pt=(ParameterizedType)currentType;
-	    			assert pt.getActualTypeArguments().length==paramCount;
-	    			Type actual=pt.getActualTypeArguments()[paramIndex];
-	    			if (actual instanceof Class<?>) { return (Class<?>)actual; }
-	    			if (actual instanceof TypeVariable) {
-	    				var=(TypeVariable<?>)actual;
-	    				paramIndex=indexOf(current.getTypeParameters(),var.getName());
-	    				paramCount=current.getTypeParameters().length;
-    				}
+    	TortillaEvents.ReturnType event=TortillaEvents.AVAILABLE?new TortillaEvents.ReturnType():null;
+    	if (event!=null) { event.begin(); }
+    	try {
+	    	Type type=method.getGenericReturnType();
+	    	if (type instanceof TypeVariable) {
+	    		GenericDeclaration gendec=((TypeVariable<?>)type).getGenericDeclaration();
+	    		if (gendec instanceof Class&&!((Class<?>)gendec).isAssignableFrom(parent)) {
+	    			throw new IllegalArgumentException("Unable to resolve generic declaration path to "+type); 
 	    		}
-    		} while (it.hasPrevious() && (current=it.previous())!=null);
-    		// if nothing was found it's likely this is a wildcard type, so return the base type of the wildcard
-    		return method.getReturnType();
-    	} else if (type instanceof Class) {
+	    	}
+	    	return getRawType(resolveType(parent,type));
+    	} finally {
+    		if (event!=null&&event.shouldCommit()) {
+    			event.className=parent.getName();
+    			event.method=method.getName();
+    			event.commit();
+    		}
+    	}
+    }
+    /**
+     * Gets the raw types of the type arguments of a method's return type in the given class, such as the element
+     * type of a collection.
+     * @param parent The class
+     * @param method The method to which the class belongs.
+     * @return The raw type arguments, or an empty array if the return type is not parameterized.
+     */
+    public static Class<?>[] getReturnTypeArguments(Class<?> parent, Method method) {
+    	Type type=resolveType(parent,method.getGenericReturnType());
+    	if (!(type instanceof ParameterizedType)) { return new Class<?>[0]; }
+    	Type[] args=((ParameterizedType)type).getActualTypeArguments();
+    	Class<?>[] ret=new Class<?>[args.length];
+    	for (int i=0;i<args.length;i++) {
+    		ret[i]=getRawType(args[i]);
+    	}
+    	return ret;
+    }
+    /**
+     * Gets the actual type bound to every type variable declared by the superclasses and interfaces of a class.
+     * The bindings are computed in a single pass over the hierarchy and cached.  Type variables that are not
+     * bound to a concrete type, such as those of the class itself, are bound to themselves or to the type
+     * variable of the subclass they were passed through.
+     * @param clazz The class
+     * @return An unmodifiable map of type variables to their actual types.
+     */
+    static Map<TypeVariable<?>,Type> getTypeBindings(Class<?> clazz) {
+    	return cache.bindings.get(clazz);
+    }
+    /**
+     * Replace every type variable in a type with the actual type bound to it in the given class.
+     * @param parent The class
+     * @param type The type to resolve, such as the generic return type of a method of the class or one of its supertypes.
+     * @return The resolved type.
+     */
+    static Type resolveType(Class<?> parent, Type type) {
+    	return substitute(type,getTypeBindings(parent));
+    }
+    /**
+     * Gets the class that a type erases to.
+     * @param type The type
+     * @return The raw class of the type.
+     */
+    static Class<?> getRawType(Type type) {
+    	if (type instanceof Class) {
     		return (Class<?>)type;
     	} else if (type instanceof ParameterizedType) {
-    		ParameterizedType var=(ParameterizedType)type;
-    		return (Class<?>)var.getRawType();
+    		return (Class<?>)((ParameterizedType)type).getRawType();
+    	} else if (type instanceof GenericArrayType) {
+    		return Array.newInstance(getRawType(((GenericArrayType)type).getGenericComponentType()),0).getClass();
+    	} else if (type instanceof TypeVariable) {
+    		return getRawType(((TypeVariable<?>)type).getBounds()[0]);
+    	} else if (type instanceof WildcardType) {
+    		return getRawType(((WildcardType)type).getUpperBounds()[0]);
     	}
     	throw new IllegalArgumentException("Unknown type "+type+" implements "+Lists.newArrayList(type.getClass().getInterfaces()));
     }
+    /**
+     * Compute the type variable bindings of a class.
+     * @param clazz The class
+     * @return The bindings.
+     */
+    private static Map<TypeVariable<?>,Type> computeBindings(Class<?> clazz) {
+    	Map<TypeVariable<?>,Type> bindings=new HashMap<TypeVariable<?>,Type>();
+    	Set<Class<?>> visited=new HashSet<Class<?>>();
+    	LinkedList<Type> queue=new LinkedList<Type>();
+    	queue.add(clazz);
+    	while (!queue.isEmpty()) {
+    		Type type=queue.removeFirst();
+    		Class<?> raw;
+    		if (type instanceof ParameterizedType) {
+    			ParameterizedType pt=(ParameterizedType)type;
+    			raw=(Class<?>)pt.getRawType();
+    			if (!visited.add(raw)) { continue; }
+    			TypeVariable<?>[] vars=raw.getTypeParameters();
+    			Type[] args=pt.getActualTypeArguments();
+    			for (int i=0;i<vars.length&&i<args.length;i++) {
+    				bindings.put(vars[i],substitute(args[i],bindings));
+    			}
+    		} else if (type instanceof Class) {
+    			raw=(Class<?>)type;
+    			if (!visited.add(raw)) { continue; }
+    		} else {
+    			continue;
+    		}
+    		if (raw.getGenericSuperclass()!=null) { queue.add(raw.getGenericSuperclass()); }
+    		queue.addAll(Arrays.asList(raw.getGenericInterfaces()));
+    	}
+    	return Collections.unmodifiableMap(bindings);
+    }
+    /**
+     * Replace the type variables of a type using a map of bindings.
+     * @param type The type
+     * @param bindings The bindings
+     * @return The type with all bound type variables replaced.
+     */
+    private static Type substitute(Type type, Map<TypeVariable<?>,Type> bindings) {
+    	if (type instanceof TypeVariable) {
+    		Type bound=bindings.get(type);
+    		return bound!=null?bound:type;
+    	} else if (type instanceof ParameterizedType) {
+    		ParameterizedType pt=(ParameterizedType)type;
+    		Type[] args=pt.getActualTypeArguments();
+    		Type[] resolved=new Type[args.length];
+    		boolean changed=false;
+    		for (int i=0;i<args.length;i++) {
+    			resolved[i]=substitute(args[i],bindings);
+    			changed|=resolved[i]!=args[i];
+    		}
+    		return changed?new ResolvedParameterizedType(pt,resolved):pt;
+    	} else if (type instanceof GenericArrayType) {
+    		Type component=((GenericArrayType)type).getGenericComponentType();
+    		Type resolved=substitute(component,bindings);
+    		if (resolved==component) { return type; }
+    		if (resolved instanceof Class) { return Array.newInstance((Class<?>)resolved,0).getClass(); }
+    		return new ResolvedGenericArrayType(resolved);
+    	}
+    	return type;
+    }
+    /**
+     * Per class cache of type variable bindings.
+     */
+    private static class Cache {
+    	private final ClassValue<Map<TypeVariable<?>,Type>> bindings=new ClassValue<Map<TypeVariable<?>,Type>>() {
+			@Override
+			protected Map<TypeVariable<?>,Type> computeValue(Class<?> type) {
+				return computeBindings(type);
+			}
+		};
+    }
+    /**
+     * A parameterized type whose type arguments have been resolved.
+     */
+    private static class ResolvedParameterizedType implements ParameterizedType {
+    	private final ParameterizedType type;
+    	private final Type[] args;
+
+    	ResolvedParameterizedType(ParameterizedType type, Type[] args) {
+    		this.type=type;
+    		this.args=args;
+    	}
+		public Type[] getActualTypeArguments() {
+			return args.clone();
+		}
+		public Type getRawType() {
+			return type.getRawType();
+		}
+		public Type getOwnerType() {
+			return type.getOwnerType();
+		}
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ParameterizedType)) { return false; }
+			ParameterizedType other=(ParameterizedType)obj;
+			return getRawType().equals(other.getRawType())&&
+				(getOwnerType()==null?other.getOwnerType()==null:getOwnerType().equals(other.getOwnerType()))&&
+				Arrays.equals(args,other.getActualTypeArguments());
+		}
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(args)^(getOwnerType()==null?0:getOwnerType().hashCode())^getRawType().hashCode();
+		}
+		@Override
+		public String toString() {
+			StringBuilder sb=new StringBuilder(((Class<?>)getRawType()).getName()).append('<');
+			for (int i=0;i<args.length;i++) {
+				if (i>0) { sb.append(", "); }
+				sb.append(args[i].getTypeName());
+			}
+			return sb.append('>').toString();
+		}
+    }
+    /**
+     * A generic array type whose component type has been resolved.
+     */
+    private static class ResolvedGenericArrayType implements GenericArrayType {
+    	private final Type component;
+
+    	ResolvedGenericArrayType(Type component) {
+    		this.component=component;
+    	}
+		public Type getGenericComponentType() {
+			return component;
+		}
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof GenericArrayType&&component.equals(((GenericArrayType)obj).getGenericComponentType());
+		}
+		@Override
+		public int hashCode() {
+			return component.hashCode();
+		}
+		@Override
+		public String toString() {
+			return component.getTypeName()+"[]";
+		}
+    }
 }
@@ -0,0 +1,348 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the read/write and equals contract checks of the beans listed in the index written by the plugin in
+ * runtime mode, so that no test source has to be generated or compiled.  Each check is prepared once, with method
+ * handles for the constructor and accessors of its bean, and run by the generated TortillaRuntimeTest.
+ * <p>
+ * The index is a UTF-8 text file with one tab separated record per line:
+ * <pre>
+ * V  equalsVerifierParameters
+ * B  beanClass  equalsContract (- for none, E, or R if a superclass redefines equals)
+ * H  threshold
+ * P  property  readMethod  writeMethod  writeMethodParameterType  propertyType
+ * </pre>
+ * where H records, which request a hashCode distribution check, and P records belong to the preceding B record, and
+ * class names are binary names.
+ */
+public class TortillaRuntime {
+	/**
+	 * The name of the index resource.
+	 */
+	public static final String INDEX="tortilla-beans.index";
+	static final char BEAN='B', PROPERTY='P', VERIFIER='V', HASH_CODE='H', NO_EQUALS='-', EQUALS='E', EQUALS_REDEFINED='R';
+	private static final String EQUALS_VERIFIER="nl.jqno.equalsverifier.EqualsVerifier";
+	private static final Pattern CALL=Pattern.compile("\\s*\\.\\s*(\\w+)\\s*\\(([^)]*)\\)");
+	private static final Pattern ENUM_CONSTANT=Pattern.compile("([\\w$]+\\.)+[A-Z][A-Z0-9_]*");
+	private static final Map<String,Class<?>> PRIMITIVES=new HashMap<String,Class<?>>();
+	static {
+		for (Class<?> c : new Class<?>[]{boolean.class,byte.class,char.class,short.class,int.class,long.class,float.class,double.class}) {
+			PRIMITIVES.put(c.getName(),c);
+		}
+	}
+	private TortillaRuntime() { }
+
+	/**
+	 * Prepare the checks listed in the index on the classpath, as parameters for a JUnit Parameterized test.
+	 * @return An array of the name and the check for each check.
+	 * @throws IOException If the index cannot be found or read.
+	 */
+	public static List<Object[]> checks() throws IOException {
+		ClassLoader loader=TortillaRuntime.class.getClassLoader();
+		InputStream is=loader.getResourceAsStream(INDEX);
+		if (is==null) { throw new IOException(INDEX+" was not found on the test classpath, run the tortilla plugin with runtime enabled."); }
+		try { return checks(is,loader); }
+		finally { is.close(); }
+	}
+	/**
+	 * Prepare the checks listed in an index.  A bean that cannot be prepared, for example because its class
+	 * cannot be loaded, results in a check that fails with the cause.
+	 * @param is The stream to read the index from.
+	 * @param loader The class loader to load beans with.
+	 * @return An array of the name and the check for each check.
+	 * @throws IOException If the index cannot be read.
+	 */
+	static List<Object[]> checks(InputStream is, ClassLoader loader) throws IOException {
+		List<Object[]> checks=new ArrayList<Object[]>();
+		BufferedReader reader=new BufferedReader(new InputStreamReader(is,"UTF-8"));
+		List<Call> verifierCalls=new ArrayList<Call>();
+		Bean bean=null;
+		String line;
+		while ((line=reader.readLine())!=null) {
+			if (line.length()==0) { continue; }
+			String[] fields=line.split("\t",-1);
+			Check check=null;
+			switch (line.charAt(0)) {
+			case VERIFIER:
+				verifierCalls=calls(fields[1]);
+				break;
+			case BEAN:
+				bean=new Bean(fields[1],loader);
+				if (bean.error!=null) {
+					check=new Failed(fields[1],bean.error);
+				} else if (fields[2].charAt(0)!=NO_EQUALS) {
+					check=new EqualsContract(bean,fields[2].charAt(0)==EQUALS_REDEFINED,verifierCalls);
+				}
+				break;
+			case HASH_CODE:
+				if (bean!=null&&bean.error==null) {
+					check=new HashCodeDistribution(bean,Double.parseDouble(fields[1]));
+				}
+				break;
+			case PROPERTY:
+				if (bean!=null&&bean.error==null) {
+					String name=bean.clazz.getName()+"."+fields[1];
+					try { check=new ReadWrite(name,bean,fields[1],fields[2],fields[3],type(fields[4],loader),type(fields[5],loader)); }
+					catch (Exception e) { check=new Failed(name,e); }
+					catch (LinkageError e) { check=new Failed(name,e); }
+				}
+				break;
+			default:
+				throw new IOException("Unexpected record in "+INDEX+": "+line);
+			}
+			if (check!=null) { checks.add(new Object[]{check.toString(),check}); }
+		}
+		return checks;
+	}
+	private static Class<?> type(String name, ClassLoader loader) throws ClassNotFoundException {
+		Class<?> primitive=PRIMITIVES.get(name);
+		return primitive!=null?primitive:Class.forName(name,false,loader);
+	}
+	/**
+	 * Parse the equals verifier parameters, which are written as Java source, into calls.  Only calls whose
+	 * arguments are enum constants, such as .suppress(nl.jqno.equalsverifier.Warning.NONFINAL_FIELDS), are supported.
+	 * @param parameters The parameters.
+	 * @return The calls.
+	 * @throws IOException If the parameters cannot be parsed.
+	 */
+	static List<Call> calls(String parameters) throws IOException {
+		List<Call> calls=new ArrayList<Call>();
+		Matcher m=CALL.matcher(parameters);
+		int end=0;
+		while (m.find()&&m.start()==end) {
+			String[] args=m.group(2).trim().length()>0?m.group(2).trim().split("\\s*,\\s*"):new String[0];
+			for (String arg : args) {
+				if (!ENUM_CONSTANT.matcher(arg).matches()) {
+					throw new IOException("Unsupported argument "+arg+" in equals verifier parameters in runtime mode: "+parameters);
+				}
+			}
+			calls.add(new Call(m.group(1),args));
+			end=m.end();
+		}
+		if (parameters.substring(end).trim().length()>0) {
+			throw new IOException("Unsupported equals verifier parameters in runtime mode: "+parameters);
+		}
+		return calls;
+	}
+	/**
+	 * Make a method accessible if possible, for methods inherited from non-public classes.
+	 */
+	private static <T extends AccessibleObject> T accessible(T object) {
+		try { object.setAccessible(true); }
+		catch (RuntimeException e) { }
+		return object;
+	}
+	/**
+	 * A single check of a bean, run with an instance of the test class to create property values with.
+	 */
+	public static abstract class Check {
+		private final String name;
+
+		Check(String name) {
+			this.name=name;
+		}
+		/**
+		 * Run the check.
+		 * @param base The test, used to create property values.
+		 * @throws Throwable If the check fails.
+		 */
+		public abstract void run(TortillaBase base) throws Throwable;
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+	/**
+	 * A bean class and the handle of its nullary constructor.
+	 */
+	private static class Bean {
+		private Class<?> clazz;
+		private MethodHandle constructor;
+		private Throwable error;
+
+		Bean(String className, ClassLoader loader) {
+			try {
+				clazz=Class.forName(className,false,loader);
+				constructor=MethodHandles.lookup().unreflectConstructor(accessible(clazz.getConstructor()))
+						.asType(MethodType.methodType(Object.class));
+			} catch (Exception e) {
+				error=e;
+			} catch (LinkageError e) {
+				error=e;
+			}
+		}
+		Object newInstance() throws Throwable {
+			return (Object)constructor.invokeExact();
+		}
+	}
+	/**
+	 * Sets a property to null, when it is not primitive, and to a created value, reading it back each time.
+	 */
+	private static class ReadWrite extends Check {
+		private final Bean bean;
+		private final String property;
+		private final Class<?> type;
+		private final String signature;
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+
+		ReadWrite(String name, Bean bean, String property, String readMethod, String writeMethod, Class<?> writeType, Class<?> type) throws Exception {
+			super(name);
+			this.bean=bean;
+			this.property=property;
+			this.type=type;
+			Method read=accessible(bean.clazz.getMethod(readMethod));
+			this.signature=read.toGenericString();
+			this.getter=MethodHandles.lookup().unreflect(read).asType(MethodType.methodType(Object.class,Object.class));
+			this.setter=MethodHandles.lookup().unreflect(accessible(bean.clazz.getMethod(writeMethod,writeType)))
+					.asType(MethodType.methodType(void.class,Object.class,Object.class));
+		}
+		@Override
+		public void run(TortillaBase base) throws Throwable {
+			Object instance=bean.newInstance();
+			Object expected=base.create(type);
+			if (!type.isPrimitive()) {
+				setter.invokeExact(instance,(Object)null);
+				assertEquals("Expected null returned from "+signature,null,(Object)getter.invokeExact(instance));
+			}
+			setter.invokeExact(instance,expected);
+			Object actual=(Object)getter.invokeExact(instance);
+			if (!type.isArray()) {
+				assertEquals("Unexpected response from "+signature,expected,actual);
+			} else {
+				assertEquals(property+" null comparison does not match",expected!=null,actual!=null);
+				if (expected==null) { return; }
+				assertEquals(property+" length does not match",Array.getLength(expected),Array.getLength(actual));
+				for (int i=0;i<Array.getLength(expected);i++) {
+					assertEquals(property+"["+i+"] values do not match",Array.get(expected,i),Array.get(actual,i));
+				}
+			}
+		}
+	}
+	/**
+	 * Checks the distribution of the hash codes of a bean.
+	 */
+	private static class HashCodeDistribution extends Check {
+		private final Bean bean;
+		private final double threshold;
+
+		HashCodeDistribution(Bean bean, double threshold) {
+			super(bean.clazz.getName()+".hashCode");
+			this.bean=bean;
+			this.threshold=threshold;
+		}
+		@Override
+		public void run(TortillaBase base) throws Throwable {
+			base.assertHashCodeDistribution(bean.clazz,threshold);
+		}
+	}
+	/**
+	 * Verifies the equals contract of a bean with jqno.nl's equalsverifier, which is called reflectively so that
+	 * it is only required when equals contract checks are enabled.
+	 */
+	private static class EqualsContract extends Check {
+		private final Bean bean;
+		private final boolean redefinedSuperclass;
+		private final List<Call> calls;
+
+		EqualsContract(Bean bean, boolean redefinedSuperclass, List<Call> calls) {
+			super(bean.clazz.getName()+".equals");
+			this.bean=bean;
+			this.redefinedSuperclass=redefinedSuperclass;
+			this.calls=calls;
+		}
+		@Override
+		public void run(TortillaBase base) throws Throwable {
+			ClassLoader loader=bean.clazz.getClassLoader()!=null?bean.clazz.getClassLoader():TortillaRuntime.class.getClassLoader();
+			try {
+				Object verifier=Class.forName(EQUALS_VERIFIER,true,loader).getMethod("forClass",Class.class).invoke(null,bean.clazz);
+				if (redefinedSuperclass) {
+					verifier=new Call("withRedefinedSuperclass",new String[0]).invoke(verifier,loader);
+				}
+				for (Call call : calls) {
+					verifier=call.invoke(verifier,loader);
+				}
+				new Call("verify",new String[0]).invoke(verifier,loader);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+	/**
+	 * Reports a bean or property that could not be prepared.
+	 */
+	private static class Failed extends Check {
+		private final Throwable cause;
+
+		Failed(String name, Throwable cause) {
+			super(name);
+			this.cause=cause;
+		}
+		@Override
+		public void run(TortillaBase base) throws Throwable {
+			throw new IllegalStateException("Unable to prepare the check of "+this,cause);
+		}
+	}
+	/**
+	 * A call of a method with enum constant arguments, such as .suppress(nl.jqno.equalsverifier.Warning.NONFINAL_FIELDS).
+	 */
+	static class Call {
+		private final String method;
+		private final String[] args;
+
+		Call(String method, String[] args) {
+			this.method=method;
+			this.args=args;
+		}
+		/**
+		 * Invoke the call.
+		 * @param target The object to invoke the method on.
+		 * @param loader The class loader to load enum types with.
+		 * @return The result of the method.
+		 * @throws Exception If the method cannot be found or invoked.
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Object invoke(Object target, ClassLoader loader) throws Exception {
+			Object[] values=new Object[args.length];
+			for (int i=0;i<args.length;i++) {
+				int idx=args[i].lastIndexOf('.');
+				values[i]=Enum.valueOf((Class<Enum>)Class.forName(args[i].substring(0,idx),true,loader),args[i].substring(idx+1));
+			}
+			for (Method m : target.getClass().getMethods()) {
+				if (!m.getName().equals(method)) { continue; }
+				Class<?>[] params=m.getParameterTypes();
+				if (m.isVarArgs()&&params.length==1) {
+					Object array=Array.newInstance(params[0].getComponentType(),values.length);
+					for (int i=0;i<values.length;i++) {
+						Array.set(array,i,values[i]);
+					}
+					return accessible(m).invoke(target,array);
+				}
+				if (params.length==values.length) {
+					return accessible(m).invoke(target,values);
+				}
+			}
+			throw new NoSuchMethodException(target.getClass().getName()+"."+method);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package net.elementj.tortilla;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Matches names against a set of wildcard patterns, compiled once.  Patterns follow the rules of
+ * FilenameUtils.wildcardMatch with case sensitivity: '*' matches any number of characters and '?' matches
+ * exactly one.  Literal patterns are looked up in a hash map and patterns with a single trailing '*' are stored
+ * in a prefix trie, so matching cost does not grow with the number of those patterns; any other patterns are
+ * compiled to regular expressions.
+ */
+class WildcardMatcher {
+	private final Map<String,String> literals=new HashMap<String,String>();
+	private final Node prefixes=new Node();
+	private final List<Pattern> expressions=new ArrayList<Pattern>();
+	private final List<String> expressionSources=new ArrayList<String>();
+	private final int size;
+
+	/**
+	 * @param patterns The wildcard patterns.
+	 */
+	WildcardMatcher(String... patterns) {
+		for (String pattern : patterns) {
+			int wildcard=indexOfWildcard(pattern);
+			if (wildcard<0) {
+				literals.put(pattern,pattern);
+			} else if (wildcard==pattern.length()-1&&pattern.charAt(wildcard)=='*') {
+				prefixes.add(pattern,0,pattern.length()-1);
+			} else {
+				expressions.add(compile(pattern));
+				expressionSources.add(pattern);
+			}
+		}
+		size=patterns.length;
+	}
+	/**
+	 * Compile patterns into a matcher.
+	 * @param patterns The wildcard patterns, or null.
+	 * @return The matcher, or null if patterns is null.
+	 */
+	static WildcardMatcher compile(String[] patterns) {
+		return patterns!=null?new WildcardMatcher(patterns):null;
+	}
+	/**
+	 * Find a pattern matching a name.
+	 * @param name The name to match.
+	 * @return The first pattern found that matches the name, or null if none match.
+	 */
+	String match(String name) {
+		String pattern=literals.get(name);
+		if (pattern!=null) { return pattern; }
+		Node node=prefixes;
+		for (int i=0;node!=null;i++) {
+			if (node.pattern!=null) { return node.pattern; }
+			if (i==name.length()) { break; }
+			node=node.children!=null?node.children.get(name.charAt(i)):null;
+		}
+		for (int i=0;i<expressions.size();i++) {
+			if (expressions.get(i).matcher(name).matches()) { return expressionSources.get(i); }
+		}
+		return null;
+	}
+	/**
+	 * @param name The name to match.
+	 * @return true if any pattern matches the name.
+	 */
+	boolean matches(String name) {
+		return match(name)!=null;
+	}
+	/**
+	 * @return The number of patterns.
+	 */
+	int size() {
+		return size;
+	}
+	private static int indexOfWildcard(String pattern) {
+		for (int i=0;i<pattern.length();i++) {
+			char c=pattern.charAt(i);
+			if (c=='*'||c=='?') { return i; }
+		}
+		return -1;
+	}
+	private static Pattern compile(String pattern) {
+		StringBuilder sb=new StringBuilder();
+		int start=0;
+		for (int i=0;i<pattern.length();i++) {
+			char c=pattern.charAt(i);
+			if (c=='*'||c=='?') {
+				if (i>start) { sb.append(Pattern.quote(pattern.substring(start,i))); }
+				sb.append(c=='*'?".*":".");
+				start=i+1;
+			}
+		}
+		if (start<pattern.length()) { sb.append(Pattern.quote(pattern.substring(start))); }
+		return Pattern.compile(sb.toString(),Pattern.DOTALL);
+	}
+	/**
+	 * A node of the prefix trie.
+	 */
+	private static class Node {
+		private Map<Character,Node> children;
+		private String pattern;
+
+		void add(String pattern, int index, int end) {
+			if (index==end) {
+				if (this.pattern==null) { this.pattern=pattern; }
+				return;
+			}
+			if (children==null) { children=new HashMap<Character,Node>(); }
+			Node child=children.get(pattern.charAt(index));
+			if (child==null) {
+				child=new Node();
+				children.put(pattern.charAt(index),child);
+			}
+			child.add(pattern,index+1,end);
+		}
+	}
+}
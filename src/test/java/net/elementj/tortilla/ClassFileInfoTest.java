@@ -0,0 +1,117 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests reading class details from class file bytes.
+ */
+public class ClassFileInfoTest {
+	@Test
+	public void testBean() throws Exception {
+		ClassFileInfo info=parse(Bean.class);
+		assertEquals(Bean.class.getName(),info.getName());
+		assertEquals(Base.class.getName(),info.getSuperName());
+		assertArrayEquals(new String[]{Serializable.class.getName()},info.getInterfaces());
+		assertTrue(info.isPublic());
+		assertEquals(false,info.isAbstract());
+		assertEquals(false,info.isInterface());
+		assertEquals(false,info.isEnum());
+		assertEquals(true,info.hasPublicNullaryConstructor());
+		assertEquals(Sets.newHashSet("Name","Active","Count"),info.getGetters());
+		assertEquals(Sets.newHashSet("Name","Active","Size"),info.getSetters());
+	}
+	@Test
+	public void testAbstractWithoutNullaryConstructor() throws Exception {
+		ClassFileInfo info=parse(Base.class);
+		assertEquals(true,info.isAbstract());
+		assertEquals(false,info.hasPublicNullaryConstructor());
+		assertEquals(Collections.emptySet(),info.getGetters());
+	}
+	@Test
+	public void testInterfaceAndEnum() throws Exception {
+		assertEquals(true,parse(Serializable.class).isInterface());
+		assertEquals(true,parse(Color.class).isEnum());
+		assertNull(parse(Object.class).getSuperName());
+	}
+	@Test(expected=IOException.class)
+	public void testNotAClassFile() throws Exception {
+		ClassFileInfo.parse(new ByteArrayInputStream(new byte[]{1,2,3,4,5,6,7,8}));
+	}
+	@Test
+	public void testCorruptConstantPool() throws Exception {
+		for (int thisClass : new int[]{1,2,99}) {
+			try {
+				ClassFileInfo.parse(new ByteArrayInputStream(classFile(thisClass)));
+				throw new AssertionError("Accepted this_class index "+thisClass);
+			} catch (IOException e) {
+				assertTrue(e.getMessage(),e.getMessage().startsWith("Invalid"));
+			}
+		}
+	}
+	/**
+	 * @param thisClass The constant pool index of the class itself.
+	 * @return A class file whose constant pool holds a UTF-8 constant and a class constant naming a missing index.
+	 */
+	private static byte[] classFile(int thisClass) throws IOException {
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		DataOutputStream out=new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(52);
+		out.writeShort(3);
+		out.writeByte(1);
+		out.writeUTF("Corrupt");
+		out.writeByte(7);
+		out.writeShort(40);
+		out.writeShort(ClassFileInfo.ACC_PUBLIC);
+		out.writeShort(thisClass);
+		out.writeShort(0);
+		out.writeShort(0);
+		out.writeShort(0);
+		out.writeShort(0);
+		out.writeShort(0);
+		out.close();
+		return bytes.toByteArray();
+	}
+	private static ClassFileInfo parse(Class<?> clazz) throws IOException {
+		InputStream is=ClassLoader.getSystemResourceAsStream(clazz.getName().replace('.','/')+".class");
+		try { return ClassFileInfo.parse(is); }
+		finally { is.close(); }
+	}
+	public enum Color { RED, GREEN }
+	public static abstract class Base {
+		public Base(int ignored) { }
+	}
+	@SuppressWarnings("serial")
+	public static class Bean extends Base implements Serializable {
+		private static final long MAX=Long.MAX_VALUE;
+		private static final double RATIO=0.5d;
+		private String name;
+		private boolean active;
+		public Bean() { super(0); }
+		public String getName() { return name; }
+		public void setName(String name) { this.name = name; }
+		public boolean isActive() { return active; }
+		public void setActive(boolean active) { this.active = active; }
+		public int getCount() { return 0; }
+		public void setSize(long[] size) { }
+		public void setPair(String a, String b) { }
+		public static String getStatic() { return String.valueOf(MAX*RATIO); }
+		protected String getHidden() { return null; }
+	}
+}
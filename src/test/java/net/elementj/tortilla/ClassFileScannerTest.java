@@ -0,0 +1,38 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests discovery of class files by ClassFileScanner.
+ */
+public class ClassFileScannerTest {
+	@Test
+	public void testClassName() throws Exception {
+		Path root=Paths.get("target","classes");
+		assertEquals("a.b.C",ClassFileScanner.className(root,root.resolve("a").resolve("b").resolve("C.class")));
+		assertEquals("a.b.C$D",ClassFileScanner.className(root,root.resolve("a").resolve("b").resolve("C$D.class")));
+		assertEquals("C",ClassFileScanner.className(root,root.resolve("C.class")));
+	}
+	@Test
+	public void testScan() throws Exception {
+		Path root=new File(ClassFileScannerTest.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toPath();
+		Set<String> found=new HashSet<String>(new ClassFileScanner(root,2,new ClassFileScanner.Filter() {
+			public boolean accept(Path file, String className) {
+				return className.startsWith(ClassFileScannerTest.class.getName());
+			}
+		}).scan());
+		assertTrue(found.contains(ClassFileScannerTest.class.getName()));
+		assertTrue(found.contains(Nested.class.getName()));
+		assertEquals(false,found.contains(ClassFileInfoTest.class.getName()));
+	}
+	public static class Nested { }
+}
@@ -0,0 +1,82 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests storing and loading the GenerationManifest.
+ */
+public class GenerationManifestTest {
+	@Rule
+	public TemporaryFolder folder=new TemporaryFolder();
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		File file=new File(folder.getRoot(),"target/tortilla-manifest");
+		GenerationManifest manifest=new GenerationManifest(file);
+		manifest.put("a.b.Bean","1234","a/b/BeanBeanTest.java");
+		manifest.put("a.b.Skipped","5678",null);
+		assertEquals(true,manifest.save());
+		assertEquals("# Generated by tortilla, do not edit\na.b.Bean=1234;a/b/BeanBeanTest.java\na.b.Skipped=5678;\n",
+				new String(Files.readAllBytes(file.toPath()),Charsets.UTF_8));
+		GenerationManifest loaded=GenerationManifest.load(file);
+		assertEquals(Sets.newHashSet("a.b.Bean","a.b.Skipped"),loaded.getClassNames());
+		assertEquals("1234",loaded.getFingerprint("a.b.Bean"));
+		assertEquals("a/b/BeanBeanTest.java",loaded.getPath("a.b.Bean"));
+		assertEquals("5678",loaded.getFingerprint("a.b.Skipped"));
+		assertNull(loaded.getPath("a.b.Skipped"));
+		assertEquals(true,loaded.contains("a.b.Skipped"));
+	}
+	@Test
+	public void testBenchmarks() throws Exception {
+		File file=folder.newFile("tortilla-manifest");
+		GenerationManifest manifest=new GenerationManifest(file);
+		manifest.put("a.b.Bean","1234","a/b/BeanBeanTest.java");
+		manifest.putBenchmark("a.b.Bean","1234","a/b/BeanBenchmark.java");
+		manifest.save();
+		assertEquals("# Generated by tortilla, do not edit\na.b.Bean=1234;a/b/BeanBeanTest.java\nbenchmark:a.b.Bean=1234;a/b/BeanBenchmark.java\n",
+				new String(Files.readAllBytes(file.toPath()),Charsets.UTF_8));
+		GenerationManifest loaded=GenerationManifest.load(file);
+		assertEquals(Sets.newHashSet("a.b.Bean"),loaded.getClassNames());
+		assertEquals(Sets.newHashSet("a.b.Bean"),loaded.getBenchmarkClassNames());
+		assertEquals("a/b/BeanBeanTest.java",loaded.getPath("a.b.Bean"));
+		assertEquals("1234",loaded.getBenchmarkFingerprint("a.b.Bean"));
+		assertEquals("a/b/BeanBenchmark.java",loaded.getBenchmarkPath("a.b.Bean"));
+		assertNull(loaded.getBenchmarkPath("a.b.Other"));
+	}
+	@Test
+	public void testUnchangedIsNotWritten() throws Exception {
+		File file=folder.newFile("tortilla-manifest");
+		GenerationManifest manifest=new GenerationManifest(file);
+		manifest.put("a.b.Bean","1234","a/b/BeanBeanTest.java");
+		assertEquals(true,manifest.save());
+		file.setLastModified(1000);
+		GenerationManifest same=GenerationManifest.load(file);
+		assertEquals(false,same.save());
+		assertEquals(1000,file.lastModified());
+	}
+	@Test
+	public void testLegacyFormat() throws Exception {
+		File file=folder.newFile(GenerationManifest.LEGACY_FILENAME);
+		Files.write(file.toPath(),"#Generated by tortilla, do not edit\n#Tue Jan 03 10:00:00 MST 2017\na.b.Bean=1234;a/b/BeanBeanTest.java\n".getBytes(Charsets.UTF_8));
+		GenerationManifest loaded=GenerationManifest.load(file);
+		assertEquals(Sets.newHashSet("a.b.Bean"),loaded.getClassNames());
+		assertEquals("a/b/BeanBeanTest.java",loaded.getPath("a.b.Bean"));
+	}
+	@Test
+	public void testMissing() throws Exception {
+		GenerationManifest loaded=GenerationManifest.load(new File(folder.getRoot(),"tortilla-manifest"));
+		assertEquals(0,loaded.getClassNames().size());
+		assertNull(loaded.getFingerprint("a.b.Bean"));
+	}
+}
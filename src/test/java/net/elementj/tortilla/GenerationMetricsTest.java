@@ -0,0 +1,45 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Tests the timing, counting and JSON report of GenerationMetrics.
+ */
+public class GenerationMetricsTest {
+	@Rule
+	public TemporaryFolder folder=new TemporaryFolder();
+
+	@Test
+	public void testReport() throws Exception {
+		GenerationMetrics metrics=new GenerationMetrics();
+		metrics.start(GenerationMetrics.Phase.SCAN).stop();
+		metrics.start(GenerationMetrics.Phase.SCAN).stop();
+		metrics.count(GenerationMetrics.Count.SEEN,3);
+		metrics.count(GenerationMetrics.Count.LOADED);
+		metrics.skipProperty("readOnly");
+		metrics.skipProperty("excluded");
+		metrics.skipProperty("readOnly");
+		assertEquals(2,metrics.getCalls(GenerationMetrics.Phase.SCAN));
+		assertEquals(0,metrics.getCalls(GenerationMetrics.Phase.WRITE));
+		assertEquals(3,metrics.get(GenerationMetrics.Count.SEEN));
+		String json=metrics.toJson();
+		assertTrue(json,json.matches("(?s)\\{\n  \"wallMillis\": \\d+\\.\\d{3},\n  \"phases\": \\{\n    \"classloader\": \\{ \"calls\": 0, .*"));
+		assertTrue(json,json.contains("\n    \"scan\": { \"calls\": 2, \"wallMillis\": "));
+		assertTrue(json,json.contains("\n    \"typeResolution\": { \"calls\": 0, \"wallMillis\": 0.000, \"cpuMillis\": "));
+		assertTrue(json,json.contains("\n  \"classes\": { \"seen\": 3, \"loaded\": 1, \"accepted\": 0, \"generated\": 0, \"unchanged\": 0 },\n"));
+		assertTrue(json,json.endsWith("\n  \"skippedProperties\": { \"excluded\": 1, \"readOnly\": 2 }\n}\n"));
+		File file=new File(folder.getRoot(),"target/tortilla-metrics.json");
+		metrics.write(file);
+		assertTrue(new String(Files.readAllBytes(file.toPath()),Charsets.UTF_8).startsWith("{\n  \"wallMillis\": "));
+	}
+}
@@ -0,0 +1,86 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Tests sharing class file details between executions through the ReactorCache.
+ */
+public class ReactorCacheTest {
+	private static final String BEAN=ClassFileInfoTest.Bean.class.getName();
+	@Rule
+	public TemporaryFolder folder=new TemporaryFolder();
+
+	@Test
+	public void testForBuild() {
+		Object build=new Object();
+		ReactorCache cache=ReactorCache.forBuild(build);
+		assertSame(cache,ReactorCache.forBuild(build));
+		assertNotSame(cache,ReactorCache.forBuild(new Object()));
+	}
+	@Test
+	public void testSharedBetweenLoaders() throws Exception {
+		File jar=jar("model.jar");
+		ReactorCache cache=new ReactorCache();
+		ClassFileInfo first=index(cache,jar).getClassFileInfo(BEAN);
+		ClassFileInfo second=index(cache,jar).getClassFileInfo(BEAN);
+		assertNotNull(first);
+		assertEquals(BEAN,first.getName());
+		assertSame(first,second);
+	}
+	@Test
+	public void testChangedJar() throws Exception {
+		File jar=jar("model.jar");
+		ReactorCache cache=new ReactorCache();
+		ClassFileInfo first=index(cache,jar).getClassFileInfo(BEAN);
+		jar.setLastModified(jar.lastModified()-10000);
+		assertNotSame(first,index(cache,jar).getClassFileInfo(BEAN));
+	}
+	@Test
+	public void testKey() throws Exception {
+		File jar=jar("model.jar"), dir=folder.newFolder("classes");
+		List<URL> urls=Arrays.asList(jar.toURI().toURL(),dir.toURI().toURL());
+		ReactorCache.Classpath classpath=new ReactorCache().classpath(urls);
+		URL inJar=new URL("jar:"+jar.toURI().toURL()+"!/"+BEAN.replace('.','/')+".class");
+		assertEquals(jar.getAbsolutePath()+";"+jar.length()+";"+jar.lastModified()+"/"+BEAN.replace('.','/')+".class",classpath.key(inJar));
+		assertNull(classpath.key(new File(dir,"Bean.class").toURI().toURL()));
+		assertNull(classpath.key(new URL("jar:"+folder.newFile("other.jar").toURI().toURL()+"!/Bean.class")));
+	}
+	private SupertypeIndex index(ReactorCache cache, File jar) throws Exception {
+		List<URL> urls=Arrays.asList(jar.toURI().toURL());
+		return new SupertypeIndex(new URLClassLoader(urls.toArray(new URL[1]),null),cache.classpath(urls));
+	}
+	private File jar(String name) throws Exception {
+		File jar=folder.newFile(name);
+		String entry=BEAN.replace('.','/')+".class";
+		JarOutputStream os=new JarOutputStream(new FileOutputStream(jar));
+		try {
+			os.putNextEntry(new ZipEntry(entry));
+			InputStream is=ClassLoader.getSystemResourceAsStream(entry);
+			try { ByteStreams.copy(is,os); }
+			finally { is.close(); }
+		} finally {
+			os.close();
+		}
+		return jar;
+	}
+}
@@ -0,0 +1,41 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests caching of type variable bindings in TortillaReflection.
+ */
+public class ReflectionCacheTest {
+	@Test
+	public void testBindingsAreCached() throws Exception {
+		assertSame(TortillaReflection.getTypeBindings(Leaf.class),TortillaReflection.getTypeBindings(Leaf.class));
+	}
+	@Test
+	public void testClearCache() throws Exception {
+		Map<TypeVariable<?>,Type> first=TortillaReflection.getTypeBindings(Leaf.class);
+		TortillaReflection.clearCache();
+		Map<TypeVariable<?>,Type> second=TortillaReflection.getTypeBindings(Leaf.class);
+		assertNotSame(first,second);
+		assertEquals(first,second);
+	}
+	@Test
+	public void testReturnTypeIsStable() throws Exception {
+		for (int i=0;i<3;i++) {
+			assertEquals(Integer.class,TortillaReflection.getReturnType(Leaf.class,Root.class.getMethod("getValue")));
+			assertEquals(Number.class,TortillaReflection.getReturnType(Middle.class,Root.class.getMethod("getValue")));
+		}
+	}
+	public static class Root<V extends Number> {
+		public V getValue() { return null; }
+	}
+	public static class Middle<N extends Number> extends Root<N> { }
+	public static class Leaf extends Middle<Integer> { }
+}
@@ -0,0 +1,72 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Tests running bean checks from an index with TortillaRuntime.
+ */
+public class RuntimeChecksTest {
+	@Test
+	public void testChecks() throws Throwable {
+		List<Object[]> checks=checks(model(ClassFileInfoTest.Bean.class),model(SupertypeIndexTest.Child.class));
+		assertEquals(3,checks.size());
+		assertEquals("net.elementj.tortilla.ClassFileInfoTest$Bean.active",checks.get(0)[0]);
+		assertEquals("net.elementj.tortilla.ClassFileInfoTest$Bean.name",checks.get(1)[0]);
+		assertEquals("net.elementj.tortilla.SupertypeIndexTest$Child.code",checks.get(2)[0]);
+		TortillaBase base=new TortillaBase();
+		((TortillaRuntime.Check)checks.get(0)[1]).run(base);
+		((TortillaRuntime.Check)checks.get(1)[1]).run(base);
+		try {
+			((TortillaRuntime.Check)checks.get(2)[1]).run(base);
+			fail("Child does not keep the value of code");
+		} catch (AssertionError e) {
+			assertEquals(true,e.getMessage().startsWith("Unexpected response from public java.lang.String"));
+		}
+	}
+	@Test(expected=IllegalStateException.class)
+	public void testMissingBean() throws Throwable {
+		List<Object[]> checks=checks("B\tno.such.Bean\t-\n");
+		assertEquals("no.such.Bean",checks.get(0)[0]);
+		((TortillaRuntime.Check)checks.get(0)[1]).run(new TortillaBase());
+	}
+	@Test(expected=AssertionError.class)
+	public void testHashCodeDistribution() throws Throwable {
+		List<Object[]> checks=checks("B\t"+TortillaBaseTest.Bucketed.class.getName()+"\t-\nH\t0.8\n");
+		assertEquals(TortillaBaseTest.Bucketed.class.getName()+".hashCode",checks.get(0)[0]);
+		((TortillaRuntime.Check)checks.get(0)[1]).run(new TortillaBase());
+	}
+	@Test
+	public void testEqualsVerifierParameters() throws Exception {
+		assertEquals(2,TortillaRuntime.calls(" .suppress(a.B.C, a.B.D).usingGetClass()").size());
+		assertEquals(0,TortillaRuntime.calls("").size());
+	}
+	@Test(expected=java.io.IOException.class)
+	public void testUnsupportedEqualsVerifierParameters() throws Exception {
+		TortillaRuntime.calls(".withPrefabValues(A.class,a,b)");
+	}
+	private static List<Object[]> checks(BeanModel... models) throws Exception {
+		return checks(BeanIndex.render(Arrays.asList(models),".suppress(nl.jqno.equalsverifier.Warning.NONFINAL_FIELDS)"));
+	}
+	private static List<Object[]> checks(String index) throws Exception {
+		return TortillaRuntime.checks(new ByteArrayInputStream(index.getBytes(Charsets.UTF_8)),RuntimeChecksTest.class.getClassLoader());
+	}
+	private static BeanModel model(Class<?> clazz) throws Exception {
+		List<PropertyModel> properties=new ArrayList<PropertyModel>();
+		for (PropertyDescriptor d : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+			if (d.getReadMethod()!=null&&d.getWriteMethod()!=null) { properties.add(new PropertyModel(clazz,d)); }
+		}
+		return new BeanModel(clazz,properties,false,false,0);
+	}
+}
@@ -0,0 +1,45 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that the SourceFileWriter only writes files whose content changed.
+ */
+public class SourceFileWriterTest {
+	@Rule
+	public TemporaryFolder folder=new TemporaryFolder();
+
+	@Test
+	public void testWriteIfChanged() throws Exception {
+		SourceFileWriter writer=new SourceFileWriter();
+		File file=new File(folder.getRoot(),"ATest.java");
+		assertEquals(true,writer.write(file,"class A { }".getBytes()));
+		file.setLastModified(1000);
+		assertEquals(false,writer.write(file,"class A { }".getBytes()));
+		assertEquals(1000,file.lastModified());
+		assertEquals(true,writer.write(file,"class B { }".getBytes()));
+		assertArrayEquals("class B { }".getBytes(),Files.readAllBytes(file.toPath()));
+		assertEquals(true,writer.write(file,"class B { };".getBytes()));
+		assertEquals(3,writer.getWritten());
+		assertEquals(1,writer.getUnchanged());
+		assertEquals(1,folder.getRoot().list().length);
+	}
+	@Test
+	public void testDefaultPermissions() throws Exception {
+		File reference=folder.newFile("Reference.java");
+		Assume.assumeNotNull(Files.getFileAttributeView(reference.toPath(),PosixFileAttributeView.class));
+		File file=new File(folder.getRoot(),"ATest.java");
+		new SourceFileWriter().write(file,"class A { }".getBytes());
+		assertEquals(Files.getPosixFilePermissions(reference.toPath()),Files.getPosixFilePermissions(file.toPath()));
+	}
+}
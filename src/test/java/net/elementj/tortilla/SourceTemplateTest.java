@@ -0,0 +1,149 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Tests compiling and rendering SourceTemplates, and rendering test cases through the TestCaseRenderer.
+ */
+public class SourceTemplateTest {
+	@Rule
+	public TemporaryFolder folder=new TemporaryFolder();
+
+	@Test
+	public void testRender() {
+		SourceTemplate template=SourceTemplate.compile("test","${b} and ${a}, ${b}$ {a}","a","b");
+		StringBuilder out=new StringBuilder("> ");
+		template.render(out,"one","two");
+		assertEquals("> two and one, two$ {a}",out.toString());
+	}
+	@Test
+	public void testNoVariables() {
+		StringBuilder out=new StringBuilder();
+		SourceTemplate.compile("test","}\n").render(out);
+		assertEquals("}\n",out.toString());
+	}
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnknownVariable() {
+		SourceTemplate.compile("test","${a}${c}","a","b");
+	}
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnclosedVariable() {
+		SourceTemplate.compile("test","${a","a");
+	}
+	@Test
+	public void testRenderer() throws Exception {
+		String source=new TestCaseRenderer(null,"my.Base",".suppress(X)",null).render(model(ClassFileInfoTest.Bean.class));
+		assertTrue(source.startsWith("package net.elementj.tortilla;\n"));
+		assertTrue(source.contains("public class BeanBeanTest extends my.Base {\n\tnet.elementj.tortilla.ClassFileInfoTest.Bean instance;\n"));
+		assertTrue(source.contains("\tpublic void testActiveRW() throws Exception {\n\t\tfinal boolean expected=createBoolean();\n\n\t\tinstance.setActive(expected);\n"));
+		assertTrue(source.contains("\t\tinstance.setName((java.lang.String)null);\n"));
+		assertTrue(source.contains("EqualsVerifier.forClass(net.elementj.tortilla.ClassFileInfoTest.Bean.class).suppress(X).verify();"));
+		assertTrue(source.endsWith("\t}\n\n}\n"));
+	}
+	@Test
+	public void testRenderSuite() throws Exception {
+		String source=new TestCaseRenderer(null,"my.Base",null,null).renderSuite("net.elementj.tortilla","TortillaBeansTest",
+				Arrays.asList(model(ClassFileInfoTest.Bean.class),model(TypeBindingsTest.Store.class)));
+		assertTrue(source.contains("public class TortillaBeansTest extends my.Base {\n"));
+		assertTrue(source.contains("\tpublic void testClassFileInfoTest__Bean_NameRW() throws Exception {\n\t\tnet.elementj.tortilla.ClassFileInfoTest.Bean instance=new net.elementj.tortilla.ClassFileInfoTest.Bean();\n"));
+		assertTrue(source.contains("\tpublic void testClassFileInfoTest__Bean_EqualsContract() throws Exception {\n"));
+		assertTrue(source.contains("\tpublic void testTypeBindingsTest__Store_EqualsContract() throws Exception {\n"));
+		assertEquals(false,source.contains("@Before"));
+		assertEquals(false,source.contains("@net.elementj.tortilla.TortillaBase.Seed"));
+	}
+	@Test
+	public void testSuiteMethodsAreUnique() throws Exception {
+		String source=new TestCaseRenderer(null,"my.Base",null,null).renderSuite("net.elementj.tortilla","TortillaBeansTest",
+				Arrays.asList(model(ClassFileInfoTest.Bean.class),model(ClassFileInfoTest.Bean.class)));
+		assertTrue(source.contains("\tpublic void testClassFileInfoTest__Bean_NameRW() throws Exception {\n"));
+		assertTrue(source.contains("\tpublic void testClassFileInfoTest__Bean_2_NameRW() throws Exception {\n"));
+		assertTrue(source.contains("\tpublic void testClassFileInfoTest__Bean_2_EqualsContract() throws Exception {\n"));
+	}
+	@Test
+	public void testSeed() throws Exception {
+		String source=new TestCaseRenderer(null,"my.Base",null,-5L).render(model(ClassFileInfoTest.Bean.class));
+		assertTrue(source.contains("\n@net.elementj.tortilla.TortillaBase.Seed(-5L)\npublic class BeanBeanTest extends my.Base {\n"));
+	}
+	@Test
+	public void testPrimitiveArray() throws Exception {
+		String source=new TestCaseRenderer(null,"my.Base",null,null).render(model(Payload.class));
+		assertTrue(source.contains("\t\tfinal byte[] expected=createByteArray();\n"));
+		assertTrue(source.contains("\t\tassertArrayEquals(\"data\",expected,instance.getData());\n"));
+	}
+	@Test
+	public void testTypedCollections() throws Exception {
+		String source=new TestCaseRenderer(null,"my.Base",null,null).render(model(Payload.class));
+		assertTrue(source.contains("\t\tfinal java.util.List expected=create(java.util.List.class,java.lang.String.class);\n"));
+		assertTrue(source.contains("\t\tfinal java.util.Map expected=create(java.util.Map.class,java.lang.String.class,java.lang.Integer[].class);\n"));
+		assertTrue(source.contains("\t\tfinal java.util.Collection expected=create(java.util.Collection.class);\n"));
+	}
+	@Test
+	public void testBenchmark() throws Exception {
+		String source=new TestCaseRenderer(null,"my.Base",null,null).renderBenchmark(model(ClassFileInfoTest.Bean.class));
+		assertTrue(source.contains("@State(Scope.Thread)\npublic class BeanBenchmark extends my.Base {\n"));
+		assertTrue(source.contains("\t\t\tfinal boolean value=createBoolean();\n\t\t\tinstance.setActive(value);\n\t\t\tequal.setActive(value);\n"));
+		assertTrue(source.contains("\tpublic int hashCodeOf() {\n"));
+		assertTrue(source.contains("\tpublic java.lang.String nameAccessors() {\n\t\tinstance.setName(equal.getName());\n"));
+		assertTrue(source.endsWith("\t}\n\n}\n"));
+	}
+	@Test
+	public void testTemplateDirectory() throws Exception {
+		File dir=folder.getRoot();
+		OutputStream os=new FileOutputStream(new File(dir,"footer"+SourceTemplate.SUFFIX));
+		try { os.write("} // end of ${className}\n".getBytes(Charsets.UTF_8)); }
+		finally { os.close(); }
+		String source=new TestCaseRenderer(dir,"my.Base",null,null).render(model(ClassFileInfoTest.Bean.class));
+		assertTrue(source.endsWith("\n} // end of BeanBeanTest\n"));
+		assertTrue(source.startsWith("package net.elementj.tortilla;\n"));
+	}
+	@Test
+	public void testHashCodeDistribution() throws Exception {
+		TestCaseRenderer renderer=new TestCaseRenderer(null,"my.Base",null,null);
+		assertTrue(renderer.render(model(ClassFileInfoTest.Bean.class,0.75)).contains(
+				"\tpublic void hashCodeDistribution() throws Exception {\n\t\tassertHashCodeDistribution(net.elementj.tortilla.ClassFileInfoTest.Bean.class,0.75);\n"));
+		assertEquals(false,renderer.render(model(ClassFileInfoTest.Bean.class)).contains("assertHashCodeDistribution"));
+	}
+	private static BeanModel model(Class<?> clazz) throws Exception {
+		return model(clazz,0);
+	}
+	private static BeanModel model(Class<?> clazz, double hashCodeThreshold) throws Exception {
+		List<PropertyModel> properties=new ArrayList<PropertyModel>();
+		for (PropertyDescriptor d : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+			if (d.getReadMethod()!=null&&d.getWriteMethod()!=null) { properties.add(new PropertyModel(clazz,d)); }
+		}
+		return new BeanModel(clazz,properties,true,false,hashCodeThreshold);
+	}
+	@SuppressWarnings("rawtypes")
+	public static class Payload {
+		private byte[] data;
+		private List<String> tags;
+		private Map<String,Integer[]> scores;
+		private Collection raw;
+		public byte[] getData() { return data; }
+		public void setData(byte[] data) { this.data=data; }
+		public List<String> getTags() { return tags; }
+		public void setTags(List<String> tags) { this.tags=tags; }
+		public Map<String,Integer[]> getScores() { return scores; }
+		public void setScores(Map<String,Integer[]> scores) { this.scores=scores; }
+		public Collection getRaw() { return raw; }
+		public void setRaw(Collection raw) { this.raw=raw; }
+	}
+}
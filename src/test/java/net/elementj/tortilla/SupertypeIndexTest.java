@@ -0,0 +1,55 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+
+import org.junit.Test;
+
+/**
+ * Tests supertype closures computed from class files by SupertypeIndex.
+ */
+public class SupertypeIndexTest {
+	private final SupertypeIndex index=new SupertypeIndex(getClass().getClassLoader());
+
+	@Test
+	public void testClosure() throws Exception {
+		SupertypeIndex.Closure closure=index.getClosure(Child.class.getName());
+		assertEquals(SupertypeIndex.names(Child.class),closure.getNames());
+		assertTrue(closure.getNames().contains(Comparable.class.getName()));
+		assertTrue(closure.getNames().contains(Serializable.class.getName()));
+		assertTrue(closure.getNames().contains(Object.class.getName()));
+		assertTrue(closure.isComplete());
+		assertSame(closure,index.getClosure(Child.class.getName()));
+		assertSame(index.getClosure(Parent.class.getName()),index.getClosure(Parent.class.getName()));
+	}
+	@Test
+	public void testAccessorPairAcrossHierarchy() throws Exception {
+		assertEquals(false,index.getClosure(Parent.class.getName()).hasAccessorPair());
+		assertEquals(true,index.getClosure(Child.class.getName()).hasAccessorPair());
+	}
+	@Test
+	public void testInheritedAccessorPair() throws Exception {
+		assertEquals(true,index.getClosure(Failure.class.getName()).hasAccessorPair());
+		assertTrue(index.getClosure(Failure.class.getName()).getNames().contains(Throwable.class.getName()));
+	}
+	@Test
+	public void testMissing() throws Exception {
+		assertNull(index.getClosure("does.not.Exist"));
+		assertNull(index.getClassFileInfo("does.not.Exist"));
+	}
+	@SuppressWarnings("serial")
+	public static class Parent implements Comparable<Parent>, Serializable {
+		public String getCode() { return null; }
+		public int compareTo(Parent o) { return 0; }
+	}
+	@SuppressWarnings("serial")
+	public static class Child extends Parent {
+		public void setCode(String code) { }
+	}
+	@SuppressWarnings("serial")
+	public static class Failure extends Exception { }
+}
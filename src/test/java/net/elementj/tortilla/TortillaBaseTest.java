@@ -0,0 +1,271 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.ComparisonFailure;
+import org.junit.Test;
+
+/**
+ * Tests creating values with TortillaBase.
+ */
+public class TortillaBaseTest {
+	private final TortillaBase base=new TortillaBase();
+
+	@Test
+	public void testBuiltIns() {
+		assertEquals(ArrayList.class,base.create(List.class).getClass());
+		assertTrue(base.create(Map.class).isEmpty());
+		assertNotNull(base.create(int.class));
+		assertNotNull(base.create(Character.class));
+		assertNotNull(base.create(TimeUnit.class));
+		String str=base.create(String.class);
+		for (char c : str.toCharArray()) {
+			assertTrue(c>=0x20&&c<=0x7e);
+		}
+		assertNotNull(base.create(Runnable.class));
+		assertNotNull(base.create(UUID.class));
+		assertNotNull(base.create(BigDecimal.class));
+	}
+	@Test
+	public void testRegister() {
+		TortillaBase base=new TortillaBase() {
+			{
+				register(new Generator<String>() {
+					public Class<String> getType() { return String.class; }
+					public String generate(Random random) { return "registered"; }
+				});
+			}
+		};
+		assertEquals("registered",base.create(String.class));
+		assertEquals(false,"registered".equals(this.base.create(String.class)));
+	}
+	@Test
+	public void testRegisterPrimitive() {
+		TortillaBase base=new TortillaBase() {
+			{
+				register(new Generator<Integer>() {
+					public Class<Integer> getType() { return int.class; }
+					public Integer generate(Random random) { return 42; }
+				});
+				register(new Generator<Byte>() {
+					public Class<Byte> getType() { return byte.class; }
+					public Byte generate(Random random) { return 7; }
+				});
+			}
+		};
+		assertEquals(42,base.createInt());
+		assertEquals(Integer.valueOf(42),base.create(int.class));
+		for (int value : base.createIntArray()) {
+			assertEquals(42,value);
+		}
+		for (byte value : base.createByteArray()) {
+			assertEquals(7,value);
+		}
+	}
+	@Test
+	public void testMockInterface() {
+		Shape shape=base.create(Shape.class);
+		assertEquals(0,shape.getCorners());
+		assertEquals(false,shape.isRound());
+		assertEquals(null,shape.getName());
+		assertEquals("Mock of "+Shape.class.getName(),shape.toString());
+		assertEquals(shape,shape);
+		assertEquals(false,shape.equals(base.create(Shape.class)));
+		assertEquals(shape.getClass(),base.create(Shape.class).getClass());
+	}
+	@Test
+	public void testGraph() {
+		TortillaBase base=new TortillaBase() {
+			@Override
+			protected int getDepth() {
+				return 2;
+			}
+		};
+		Node node=base.create(Node.class);
+		assertNotNull(node.getName());
+		assertNull(node.getParent());
+		assertTrue(node.getChildren().isEmpty());
+		assertNotNull(node.getLeaf().getName());
+		for (Leaf leaf : node.getLeaves()) {
+			assertNotNull(leaf.getName());
+		}
+		assertEquals(null,new TortillaBase().create(Node.class).getName());
+	}
+	@Test
+	public void testTypedCollections() {
+		for (int i=0;i<10;i++) {
+			for (Object element : base.create(List.class,Leaf.class)) {
+				assertEquals(Leaf.class,element.getClass());
+			}
+			for (Object entry : base.create(Map.class,String.class,Integer.class).entrySet()) {
+				assertEquals(String.class,((Map.Entry<?,?>)entry).getKey().getClass());
+				assertEquals(Integer.class,((Map.Entry<?,?>)entry).getValue().getClass());
+			}
+		}
+	}
+	@Test
+	public void testHashCodeDistribution() {
+		base.assertHashCodeDistribution(Point.class,0.8);
+		base.assertHashCodeDistribution(ClassFileInfoTest.Bean.class,0.8);
+		try {
+			base.assertHashCodeDistribution(Bucketed.class,0.8);
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage().startsWith("Poor hashCode distribution of "+Bucketed.class.getName()+": 8 distinct hash codes"));
+			return;
+		}
+		throw new AssertionError("Accepted 8 distinct hash codes");
+	}
+	@Test
+	public void testHashCodeDistributionOfSelfTypedBean() {
+		base.assertHashCodeDistribution(Employee.class,0.8);
+		Employee employee=new TortillaBase() {
+			@Override
+			protected int getDepth() {
+				return 3;
+			}
+		}.create(Employee.class);
+		assertNotNull(employee.getName());
+		assertNull(employee.getManager());
+	}
+	@Test
+	public void testConstructor() {
+		assertEquals(ClassFileInfoTest.Bean.class,base.create(ClassFileInfoTest.Bean.class).getClass());
+	}
+	@Test
+	public void testValueOf() {
+		assertNotNull(base.create(BigInteger.class));
+	}
+	@Test
+	public void testPrimitiveArrays() {
+		byte[] data=base.create(byte[].class);
+		TortillaBase.assertArrayEquals("data",data,data.clone());
+		double[] ratios=base.create(double[].class);
+		TortillaBase.assertArrayEquals("ratios",ratios,ratios.clone());
+		TortillaBase.assertArrayEquals("values",new double[]{Double.NaN},new double[]{Double.NaN});
+		TortillaBase.assertArrayEquals("values",(int[])null,null);
+		assertEquals(String[].class,base.create(String[].class).getClass());
+	}
+	@Test
+	public void testPrimitiveArrayMismatch() {
+		try {
+			TortillaBase.assertArrayEquals("values",new int[]{1,2},new int[]{1,3});
+		} catch (AssertionError e) {
+			assertEquals("values[1] values do not match expected:<2> but was:<3>",e.getMessage());
+			return;
+		}
+		throw new AssertionError("Arrays compared equal");
+	}
+	@Test(expected=AssertionError.class)
+	public void testPrimitiveArrayLength() {
+		TortillaBase.assertArrayEquals("values",new long[]{1},new long[0]);
+	}
+	@Test(expected=ComparisonFailure.class)
+	public void testArrayMismatch() {
+		TortillaBase.assertArrayEquals("values",new String[]{"a"},new String[]{"b"});
+	}
+	@Test
+	public void testSeed() {
+		assertEquals(new Seeded().create(String.class),new Seeded().create(String.class));
+		String previous=System.getProperty(TortillaBase.SEED_PROPERTY);
+		System.setProperty(TortillaBase.SEED_PROPERTY,"7");
+		try {
+			assertEquals(new TortillaBase().create(long[].class).length,new TortillaBase().create(long[].class).length);
+			assertEquals(false,new Seeded().create(String.class).equals(new TortillaBase() {}.create(String.class)));
+		} finally {
+			if (previous!=null) { System.setProperty(TortillaBase.SEED_PROPERTY,previous); }
+			else { System.clearProperty(TortillaBase.SEED_PROPERTY); }
+		}
+	}
+	@Test
+	public void testUnsupported() {
+		for (int i=0;i<2;i++) {
+			try {
+				base.create(Number.class);
+			} catch (IllegalArgumentException e) {
+				assertEquals("I can't create a class java.lang.Number",e.getMessage());
+				continue;
+			}
+			throw new AssertionError("Created an abstract class");
+		}
+	}
+	interface Shape {
+		int getCorners();
+		boolean isRound();
+		String getName();
+	}
+	@TortillaBase.Seed(42)
+	public static class Seeded extends TortillaBase {
+	}
+	public static class Node {
+		private String name;
+		private Node parent;
+		private Leaf leaf;
+		private List<Leaf> leaves;
+		private List<Node> children;
+		public String getName() { return name; }
+		public void setName(String name) { this.name=name; }
+		public Node getParent() { return parent; }
+		public void setParent(Node parent) { this.parent=parent; }
+		public Leaf getLeaf() { return leaf; }
+		public void setLeaf(Leaf leaf) { this.leaf=leaf; }
+		public List<Leaf> getLeaves() { return leaves; }
+		public void setLeaves(List<Leaf> leaves) { this.leaves=leaves; }
+		public List<Node> getChildren() { return children; }
+		public void setChildren(List<Node> children) { this.children=children; }
+	}
+	public static class Employee {
+		private String name;
+		private Employee manager;
+		public String getName() { return name; }
+		public void setName(String name) { this.name=name; }
+		public Employee getManager() { return manager; }
+		public void setManager(Employee manager) { this.manager=manager; }
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Employee&&Objects.equals(name,((Employee)obj).name)&&Objects.equals(manager,((Employee)obj).manager);
+		}
+		@Override
+		public int hashCode() {
+			return Objects.hash(name,manager);
+		}
+	}
+	public static class Leaf {
+		private String name;
+		public String getName() { return name; }
+		public void setName(String name) { this.name=name; }
+	}
+	public static class Point {
+		private int x, y;
+		public int getX() { return x; }
+		public void setX(int x) { this.x=x; }
+		public int getY() { return y; }
+		public void setY(int y) { this.y=y; }
+		@Override
+		public boolean equals(Object obj) {
+			return obj!=null&&obj.getClass()==getClass()&&((Point)obj).x==x&&((Point)obj).y==y;
+		}
+		@Override
+		public int hashCode() {
+			return 31*x+y;
+		}
+	}
+	public static class Bucketed extends Point {
+		@Override
+		public int hashCode() {
+			return getX()&7;
+		}
+	}
+}
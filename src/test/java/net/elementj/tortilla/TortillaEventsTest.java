@@ -0,0 +1,51 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that the Flight Recorder events of the plugin and of TortillaBase are committed during a recording.
+ */
+public class TortillaEventsTest {
+	@Rule
+	public TemporaryFolder folder=new TemporaryFolder();
+
+	@Test
+	public void testEvents() throws Exception {
+		assertTrue(TortillaEvents.AVAILABLE);
+		Recording recording=new Recording();
+		recording.enable("net.elementj.tortilla.ReturnType");
+		recording.enable("net.elementj.tortilla.Create");
+		recording.start();
+		TortillaReflection.getReturnType(ReflectionCacheTest.Leaf.class,ReflectionCacheTest.Root.class.getMethod("getValue"));
+		new TortillaBase().create(ClassFileInfoTest.Bean.class);
+		recording.stop();
+		File file=new File(folder.getRoot(),"tortilla.jfr");
+		recording.dump(file.toPath());
+		recording.close();
+		List<String> events=new ArrayList<String>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+			String name=event.getEventType().getName();
+			if (name.equals("net.elementj.tortilla.ReturnType")) {
+				events.add(name+" "+event.getString("className")+"."+event.getString("method"));
+			} else if (name.equals("net.elementj.tortilla.Create")) {
+				events.add(name+" "+event.getString("className")+" "+event.getInt("propertyCount"));
+			}
+		}
+		assertEquals(2,events.size());
+		assertTrue(events.toString(),events.contains("net.elementj.tortilla.ReturnType "+ReflectionCacheTest.Leaf.class.getName()+".getValue"));
+		assertTrue(events.toString(),events.contains("net.elementj.tortilla.Create "+ClassFileInfoTest.Bean.class.getName()+" 0"));
+	}
+}
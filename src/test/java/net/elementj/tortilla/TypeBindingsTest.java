@@ -0,0 +1,61 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests resolution of types using the type variable bindings computed by TortillaReflection.
+ */
+public class TypeBindingsTest {
+	@Test
+	public void testBindings() throws Exception {
+		Map<TypeVariable<?>,Type> bindings=TortillaReflection.getTypeBindings(Ledger.class);
+		assertEquals(Long.class,bindings.get(Keyed.class.getTypeParameters()[0]));
+		assertEquals(String.class,bindings.get(Store.class.getTypeParameters()[0]));
+		assertEquals(Long.class,bindings.get(Store.class.getTypeParameters()[1]));
+	}
+	@Test
+	public void testParameterizedReturnType() throws Exception {
+		Type type=TortillaReflection.resolveType(Ledger.class,Store.class.getMethod("getValues").getGenericReturnType());
+		assertTrue(type instanceof ParameterizedType);
+		assertEquals(List.class,((ParameterizedType)type).getRawType());
+		assertArrayEquals(new Type[]{String.class},((ParameterizedType)type).getActualTypeArguments());
+		assertArrayEquals(new Class<?>[]{Long.class,String.class},TortillaReflection.getReturnTypeArguments(Ledger.class,Store.class.getMethod("getIndex")));
+		assertArrayEquals(new Class<?>[0],TortillaReflection.getReturnTypeArguments(Ledger.class,Store.class.getMethod("getValue")));
+	}
+	@Test
+	public void testArrayReturnType() throws Exception {
+		assertEquals(String[].class,TortillaReflection.getReturnType(Ledger.class,Store.class.getMethod("getArray")));
+		assertEquals(Long.class,TortillaReflection.getReturnType(Ledger.class,Keyed.class.getMethod("getKey")));
+	}
+	@Test
+	public void testUnboundVariable() throws Exception {
+		assertEquals(CharSequence.class,TortillaReflection.getReturnType(OpenStore.class,Store.class.getMethod("getValue")));
+		assertEquals(Object.class,TortillaReflection.getReturnType(Ledger.class,Ledger.class.getMethod("getAnything")));
+	}
+	public interface Keyed<K> {
+		K getKey();
+	}
+	public static abstract class Store<V extends CharSequence,K> implements Keyed<K> {
+		public V getValue() { return null; }
+		public V[] getArray() { return null; }
+		public List<V> getValues() { return null; }
+		public Map<K,V> getIndex() { return null; }
+	}
+	public static class OpenStore<X extends CharSequence> extends Store<X,Integer> {
+		public Integer getKey() { return null; }
+	}
+	public static class Ledger extends Store<String,Long> {
+		public Long getKey() { return null; }
+		public <T> T getAnything() { return null; }
+	}
+}
@@ -0,0 +1,54 @@
+package net.elementj.tortilla;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.junit.Test;
+
+/**
+ * Tests the compiled class and property matchers against FilenameUtils.wildcardMatch.
+ */
+public class WildcardMatcherTest {
+	private static final String[] PATTERNS={"java.lang.Object","java.util.*","*","com.example.?ean","*.dto.*Dto","a*b*c","com.example.Bean$*",""};
+	private static final String[] NAMES={"java.lang.Object","java.lang.String","java.util.List","java.util.","com.example.Bean","com.example.Bean$Inner",
+		"com.example.Been","org.dto.UserDto","org.dto.User","abc","aXbYc","ab","","javax.util.List"};
+
+	@Test
+	public void testSinglePatternsMatchLikeWildcardMatch() {
+		for (String pattern : PATTERNS) {
+			WildcardMatcher matcher=new WildcardMatcher(pattern);
+			for (String name : NAMES) {
+				assertEquals(pattern+" vs "+name,FilenameUtils.wildcardMatch(name,pattern,IOCase.SENSITIVE),matcher.matches(name));
+			}
+		}
+	}
+	@Test
+	public void testExplainsMatch() {
+		WildcardMatcher matcher=new WildcardMatcher("java.util.*","java.lang.Object","*.dto.*Dto","com.*");
+		assertEquals("java.lang.Object",matcher.match("java.lang.Object"));
+		assertEquals("java.util.*",matcher.match("java.util.Map$Entry"));
+		assertEquals("*.dto.*Dto",matcher.match("org.dto.UserDto"));
+		assertEquals("com.*",matcher.match("com.example.Bean"));
+		assertNull(matcher.match("java.lang.String"));
+		assertEquals(4,matcher.size());
+	}
+	@Test
+	public void testEmpty() {
+		assertNull(new WildcardMatcher().match("java.lang.Object"));
+		assertNull(WildcardMatcher.compile(null));
+	}
+	@Test
+	public void testPropertyMatcher() {
+		PropertyMatcher matcher=new PropertyMatcher("com.example.Bean.name","com.example.*.id","*.password*","invalid");
+		assertEquals("com.example.Bean.name",matcher.match("com.example.Bean","name"));
+		assertNull(matcher.match("com.example.Other","name"));
+		assertEquals("com.example.*.id",matcher.match("com.example.Other","id"));
+		assertEquals("*.password*",matcher.match("org.User","passwordHash"));
+		assertNull(matcher.match("org.User","id"));
+		assertEquals(Arrays.asList("invalid"),matcher.getInvalidRules());
+	}
+}